@@ -0,0 +1,57 @@
+package com.example.stocks.messaging;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Deserialización de {@link StockUpdateMessage}, lo que paga el listener por cada mensaje SQS
+ * antes de tocar Postgres o Redis. El cuerpo llega como String, igual que desde el SDK.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StockUpdateMessageBenchmark {
+
+    private static final String BODY =
+            "{\"symbol\":\"AAPL\",\"price\":195.1234,\"updatedAt\":\"2025-01-01T12:00:00.123456Z\"}";
+
+    private ObjectMapper mapper;
+    private ObjectReader reader;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapper().findAndRegisterModules();
+        reader = mapper.readerFor(StockUpdateMessage.class);
+        bytes = BODY.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public StockUpdateMessage readValueFromString() throws IOException {
+        return mapper.readValue(BODY, StockUpdateMessage.class);
+    }
+
+    // Lector ya ligado al tipo: evita resolver el deserializador en cada llamada
+    @Benchmark
+    public StockUpdateMessage readerFromBytes() throws IOException {
+        return reader.readValue(bytes);
+    }
+}
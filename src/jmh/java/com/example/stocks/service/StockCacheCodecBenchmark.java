@@ -0,0 +1,72 @@
+package com.example.stocks.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.stocks.domain.Price;
+
+/**
+ * Codificación de las entradas de {@link StockCacheService}: la clave, los argumentos del
+ * script PUT_IF_NEWER y el parseo de "micros:precio". También la conversión desde y hacia
+ * BigDecimal que pagan {@code put(String, BigDecimal)} y {@code get(String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StockCacheCodecBenchmark {
+
+    private String symbol;
+    private Price price;
+    private BigDecimal decimal;
+    private Instant updatedAt;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        symbol = "aapl";
+        price = Price.parse("195.1234");
+        decimal = new BigDecimal("195.1234");
+        updatedAt = Instant.parse("2025-01-01T12:00:00.123456Z");
+        encoded = StockCacheService.encodeTimestamp(updatedAt) + ":" + price;
+    }
+
+    @Benchmark
+    public String key() {
+        return StockCacheService.PREFIX + symbol.toUpperCase();
+    }
+
+    @Benchmark
+    public String[] encode() {
+        return new String[] {StockCacheService.encodeTimestamp(updatedAt), price.toString()};
+    }
+
+    @Benchmark
+    public StockCacheService.CachedStock decode() {
+        return StockCacheService.decode(encoded);
+    }
+
+    @Benchmark
+    public String encodeFromBigDecimal() {
+        return Price.of(decimal).toString();
+    }
+
+    @Benchmark
+    public BigDecimal decodeToBigDecimal() {
+        return StockCacheService.decode(encoded).price().toBigDecimal();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.stocks.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.StockSummary;
+import com.example.stocks.repository.StockRepository;
+import com.example.stocks.repository.StockTickRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Mapeo de {@link StockService#getView(String)} con la caché y los repositorios sustituidos,
+ * para medir solo el código de la aplicación. En {@code miss} el coste incluye la invocación
+ * del mock de Mockito, así que sirve para comparar contra sí mismo, no contra {@code hit}.
+ * La lectura de JPA (entidad o proyección) no pasa por aquí: medirla necesita un Postgres real.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StockServiceViewBenchmark {
+
+    private StockService hitService;
+    private StockService missService;
+
+    @Setup
+    public void setUp() {
+        Price price = Price.parse("195.12");
+        Instant updatedAt = Instant.parse("2025-01-01T12:00:00Z");
+        StockRepository repository = mock(StockRepository.class);
+        when(repository.findSummaryBySymbol("AAPL"))
+                .thenReturn(Optional.of(new StockSummary("AAPL", price, updatedAt)));
+        StockTickRepository tickRepository = mock(StockTickRepository.class);
+        // getView no escribe: el writer no se invoca
+        StockCacheWriter cacheWriter = mock(StockCacheWriter.class);
+        IngestMetrics metrics = new IngestMetrics(new SimpleMeterRegistry());
+
+        hitService = new StockService(repository, tickRepository,
+                new FixedCache(new StockCacheService.CachedStock(price, updatedAt)), cacheWriter, metrics);
+        missService = new StockService(repository, tickRepository, new FixedCache(null), cacheWriter, metrics);
+    }
+
+    @Benchmark
+    public Optional<StockService.StockView> hit() {
+        return hitService.getView("aapl");
+    }
+
+    @Benchmark
+    public Optional<StockService.StockView> miss() {
+        return missService.getView("aapl");
+    }
+
+    // Caché sin Redis que siempre devuelve la misma entrada y descarta el backfill
+    private static final class FixedCache extends StockCacheService {
+        private final Optional<CachedStock> entry;
+
+        FixedCache(CachedStock entry) {
+            super(null, new SimpleMeterRegistry(), false, 0, Duration.ZERO);
+            this.entry = Optional.ofNullable(entry);
+        }
+
+        @Override
+        public Optional<CachedStock> getEntry(String symbol) {
+            return entry;
+        }
+
+        @Override
+        public int putAll(Map<String, CachedStock> entries) {
+            return 0;
+        }
+    }
+}
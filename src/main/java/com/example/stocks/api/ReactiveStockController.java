@@ -0,0 +1,249 @@
+package com.example.stocks.api;
+
+import com.example.stocks.domain.Candle;
+import com.example.stocks.domain.CandleInterval;
+import com.example.stocks.domain.StockSummary;
+import com.example.stocks.domain.StockTick;
+import com.example.stocks.service.CandleService;
+import com.example.stocks.service.ReactiveStockService;
+import com.example.stocks.service.StockPriceStream;
+import com.example.stocks.service.StockService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Las rutas de {@link StockController} en modo reactivo (spring.main.web-application-type=reactive),
+ * con las mismas respuestas, límites y cabeceras de caché (ETag/Last-Modified).
+ *
+ * Precios, páginas y exportación no bloquean: Redis reactivo y R2DBC ({@link ReactiveStockService}).
+ * El histórico de ticks y las velas cerradas siguen en JDBC y se leen en boundedElastic, fuera
+ * del event loop.
+ */
+@RestController
+@RequestMapping("/api/stocks")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStockController {
+
+    private final ReactiveStockService service;
+    private final StockService blockingService;
+    @Nullable
+    private final CandleService candles;
+    @Nullable
+    private final StockPriceStream priceStream;
+    private final Duration streamTimeout;
+
+    @Autowired
+    public ReactiveStockController(ReactiveStockService service, StockService blockingService,
+                                   @Nullable CandleService candles, @Nullable StockPriceStream priceStream,
+                                   @Value("${app.stream.timeout:30m}") Duration streamTimeout) {
+        this.service = service;
+        this.blockingService = blockingService;
+        this.candles = candles;
+        this.priceStream = priceStream;
+        this.streamTimeout = streamTimeout;
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<StockSummary>>> list(@RequestParam(required = false) String after,
+                                                         @RequestParam(defaultValue = "100") int limit,
+                                                         ServerWebExchange exchange) {
+        if (limit < 1 || limit > StockController.MAX_PAGE_SIZE) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return service.collectionVersion()
+                .map(version -> Optional.of(StockController.etag(version)))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(etag -> {
+                    if (etag.isPresent() && exchange.checkNotModified(etag.get())) {
+                        return Mono.just(StockController.<List<StockSummary>>notModified());
+                    }
+                    return service.findPage(after, limit).collectList().map(page -> {
+                        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+                        etag.ifPresent(response::eTag);
+                        if (page.size() == limit) {
+                            response.header(StockController.NEXT_CURSOR_HEADER, page.get(page.size() - 1).symbol());
+                        }
+                        return response.body(page);
+                    });
+                });
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<StockSummary> export() {
+        return service.findAll();
+    }
+
+    @GetMapping("/quotes")
+    public Mono<ResponseEntity<List<StockService.StockView>>> quotes(@RequestParam List<String> symbols) {
+        if (symbols.size() > StockController.MAX_QUOTE_SYMBOLS) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return service.getViews(symbols).map(ResponseEntity::ok);
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<StockTick>>> stream(@RequestParam List<String> symbols) {
+        if (symbols.isEmpty() || symbols.size() > StockController.MAX_QUOTE_SYMBOLS) {
+            return ResponseEntity.badRequest().build();
+        }
+        StockPriceStream stream = priceStream;
+        if (stream == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // La suscripción se abre al suscribirse al cuerpo, no aquí: si el cliente se va antes o la
+        // escritura falla, nunca llega a existir y no ocupa una plaza de max-subscribers
+        return ResponseEntity.ok(new DemandSink().flux(sink -> stream.subscribe(symbols, sink))
+                .map(tick -> ServerSentEvent.builder(tick).event("price").build())
+                .take(streamTimeout));
+    }
+
+    @GetMapping("/{symbol}")
+    public Mono<ResponseEntity<StockService.StockView>> get(@PathVariable String symbol,
+                                                            ServerWebExchange exchange) {
+        return service.getView(symbol)
+                .map(view -> {
+                    Instant updatedAt = view.updatedAt();
+                    if (updatedAt == null) {
+                        return ResponseEntity.ok(view);
+                    }
+                    String etag = StockController.etag(updatedAt);
+                    // Solo If-None-Match, como en StockController#get
+                    if (exchange.checkNotModified(etag)) {
+                        return StockController.<StockService.StockView>notModified();
+                    }
+                    return ResponseEntity.ok()
+                            .cacheControl(CacheControl.noCache())
+                            .eTag(etag)
+                            .lastModified(updatedAt)
+                            .body(view);
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{symbol}/history")
+    public Mono<ResponseEntity<List<StockTick>>> history(@PathVariable String symbol,
+                                                         @RequestParam(required = false) Instant from,
+                                                         @RequestParam(required = false) Instant to,
+                                                         @RequestParam(defaultValue = "1000") int limit) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(StockController.DEFAULT_HISTORY_RANGE);
+        if (!start.isBefore(end) || limit < 1 || limit > StockController.MAX_HISTORY_POINTS) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return Mono.fromCallable(() -> blockingService.getHistory(symbol, start, end, limit))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ResponseEntity::ok);
+    }
+
+    // La vela abierta está en memoria: se responde sin salir del event loop
+    @GetMapping("/{symbol}/candles/current")
+    public ResponseEntity<Candle> currentCandle(@PathVariable String symbol,
+                                                @RequestParam(defaultValue = "1m") String interval) {
+        Optional<CandleInterval> parsed = CandleInterval.fromCode(interval);
+        if (parsed.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (candles == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return candles.current(symbol, parsed.get())
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{symbol}/candles")
+    public Mono<ResponseEntity<List<Candle>>> candles(@PathVariable String symbol,
+                                                      @RequestParam(defaultValue = "1m") String interval,
+                                                      @RequestParam(required = false) Instant from,
+                                                      @RequestParam(required = false) Instant to,
+                                                      @RequestParam(defaultValue = "1000") int limit) {
+        Optional<CandleInterval> parsed = CandleInterval.fromCode(interval);
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(StockController.DEFAULT_HISTORY_RANGE);
+        if (parsed.isEmpty() || !start.isBefore(end) || limit < 1 || limit > StockController.MAX_HISTORY_POINTS) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        CandleService service = candles;
+        if (service == null) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        return Mono.fromCallable(() -> service.history(symbol, parsed.get(), start, end, limit))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Puente entre {@link StockPriceStream} y la respuesta SSE. {@link #send} espera, en el hilo
+     * virtual del suscriptor, a que el cliente pida más: con un cliente lento los precios se
+     * siguen sustituyendo por el último de cada símbolo en lugar de acumularse en un buffer.
+     *
+     * La suscripción a {@link StockPriceStream} vive lo mismo que la del Flux: se abre al
+     * suscribirse y se cierra al cancelar, completar o fallar. Sin plaza libre el Flux falla con
+     * 503 antes de emitir nada.
+     */
+    static final class DemandSink implements StockPriceStream.Sink {
+        private final Semaphore demand = new Semaphore(0);
+        private volatile boolean unbounded;
+        private volatile boolean cancelled;
+        @Nullable
+        private volatile FluxSink<StockTick> out;
+
+        Flux<StockTick> flux(Function<StockPriceStream.Sink, StockPriceStream.Subscription> subscribe) {
+            return Flux.create(sink -> {
+                out = sink;
+                sink.onRequest(n -> {
+                    if (n == Long.MAX_VALUE) unbounded = true;
+                    demand.release((int) Math.min(n, 1 << 20));
+                });
+                StockPriceStream.Subscription subscription = subscribe.apply(this);
+                if (subscription == null) {
+                    sink.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE));
+                    return;
+                }
+                sink.onDispose(() -> {
+                    cancelled = true;
+                    demand.release();
+                    subscription.close();
+                });
+            });
+        }
+
+        @Override
+        public void send(StockTick tick) throws IOException {
+            if (!unbounded) {
+                try {
+                    demand.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            FluxSink<StockTick> sink = out;
+            if (cancelled || sink == null) throw new IOException("Cliente desconectado");
+            sink.next(tick);
+        }
+    }
+}
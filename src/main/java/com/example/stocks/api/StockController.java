@@ -1,30 +1,223 @@
 package com.example.stocks.api;
 
-import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.Candle;
+import com.example.stocks.domain.CandleInterval;
+import com.example.stocks.domain.StockSummary;
+import com.example.stocks.domain.StockTick;
+import com.example.stocks.service.CandleService;
+import com.example.stocks.service.StockPriceStream;
 import com.example.stocks.service.StockService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 
+// En modo reactivo las mismas rutas las sirve ReactiveStockController
 @RestController
 @RequestMapping("/api/stocks")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class StockController {
+    static final int MAX_QUOTE_SYMBOLS = 1000;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_HISTORY_POINTS = 10_000;
+    static final Duration DEFAULT_HISTORY_RANGE = Duration.ofDays(1);
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final StockService service;
+    private final ObjectWriter writer;
+    @Nullable
+    private final CandleService candles;
+    @Nullable
+    private final StockPriceStream priceStream;
+    private final Duration streamTimeout;
 
-    public StockController(StockService service) {
+    @Autowired
+    public StockController(StockService service, ObjectMapper objectMapper,
+                           @Nullable CandleService candles, @Nullable StockPriceStream priceStream,
+                           @Value("${app.stream.timeout:30m}") Duration streamTimeout) {
         this.service = service;
+        this.writer = objectMapper.writerFor(StockSummary.class);
+        this.candles = candles;
+        this.priceStream = priceStream;
+        this.streamTimeout = streamTimeout;
     }
 
+    // Paginación por cursor: GET /api/stocks?after=MSFT&limit=100. Si la página está llena,
+    // la cabecera X-Next-Cursor trae el valor de "after" para pedir la siguiente.
+    // El ETag es la versión de la colección en Redis: un If-None-Match vigente responde 304 sin
+    // consultar la página en Postgres. Sin versión en caché se responde siempre con la página.
     @GetMapping
-    public List<Stock> list() {
-        return service.findAll();
+    public ResponseEntity<List<StockSummary>> list(@RequestParam(required = false) String after,
+                                            @RequestParam(defaultValue = "100") int limit,
+                                            WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        OptionalLong version = service.collectionVersion();
+        String etag = version.isPresent() ? etag(version.getAsLong()) : null;
+        if (etag != null && request.checkNotModified(etag)) {
+            return notModified();
+        }
+        List<StockSummary> page = service.findPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, page.get(page.size() - 1).symbol());
+        }
+        return response.body(page);
+    }
+
+    // Todos los stocks en NDJSON (un objeto por línea), escritos a medida que se leen del cursor
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        StreamingResponseBody body = out -> service.forEachStock(stock -> {
+            try {
+                out.write(writer.writeValueAsBytes(stock));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Cotizaciones de muchos símbolos en una sola petición: GET /api/stocks/quotes?symbols=AAPL,MSFT
+    @GetMapping("/quotes")
+    public ResponseEntity<List<StockService.StockView>> quotes(@RequestParam List<String> symbols) {
+        if (symbols.size() > MAX_QUOTE_SYMBOLS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(service.getViews(symbols));
     }
 
+    // Precios en tiempo real por SSE: GET /api/stocks/stream?symbols=AAPL,MSFT. Un evento "price"
+    // por cambio; si el cliente va lento recibe el último precio de cada símbolo, no todos.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@RequestParam List<String> symbols) {
+        if (symbols.isEmpty() || symbols.size() > MAX_QUOTE_SYMBOLS) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (priceStream == null) {
+            return ResponseEntity.notFound().build();
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        StockPriceStream.Subscription subscription = priceStream.subscribe(symbols,
+                tick -> emitter.send(SseEmitter.event().name("price").data(tick, MediaType.APPLICATION_JSON)));
+        if (subscription == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(e -> subscription.close());
+        return ResponseEntity.ok(emitter);
+    }
+
+    // ETag y Last-Modified salen de updatedAt, que identifica el precio de cada símbolo
+    // (last-write-wins). Con un acierto en caché el 304 no toca Postgres ni serializa la vista.
+    // Solo se valida If-None-Match: If-Modified-Since tiene resolución de segundos y un precio
+    // que cambie dentro del mismo segundo recibiría un 304 con el anterior.
     @GetMapping("/{symbol}")
-    public ResponseEntity<StockService.StockView> get(@PathVariable String symbol) {
-        return service.getView(symbol)
+    public ResponseEntity<StockService.StockView> get(@PathVariable String symbol, WebRequest request) {
+        Optional<StockService.StockView> view = service.getView(symbol);
+        if (view.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Instant updatedAt = view.get().updatedAt();
+        if (updatedAt == null) {
+            return ResponseEntity.ok(view.get());
+        }
+        String etag = etag(updatedAt);
+        if (request.checkNotModified(etag)) {
+            return notModified();
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .lastModified(updatedAt)
+                .body(view.get());
+    }
+
+    // Débil: con compresión cambian los bytes, no el contenido
+    static String etag(long version) {
+        return "W/\"" + Long.toHexString(version) + "\"";
+    }
+
+    static String etag(Instant updatedAt) {
+        return etag(ChronoUnit.MICROS.between(Instant.EPOCH, updatedAt));
+    }
+
+    static <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CacheControl.noCache()).build();
+    }
+
+    // Histórico de ticks: GET /api/stocks/AAPL/history?from=2025-01-01T00:00:00Z&to=2025-01-02T00:00:00Z
+    // Por defecto, las últimas 24 horas hasta ahora.
+    @GetMapping("/{symbol}/history")
+    public ResponseEntity<List<StockTick>> history(@PathVariable String symbol,
+                                                   @RequestParam(required = false) Instant from,
+                                                   @RequestParam(required = false) Instant to,
+                                                   @RequestParam(defaultValue = "1000") int limit) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_HISTORY_RANGE);
+        if (!start.isBefore(end) || limit < 1 || limit > MAX_HISTORY_POINTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(service.getHistory(symbol, start, end, limit));
+    }
+
+    // Vela abierta en memoria: GET /api/stocks/AAPL/candles/current?interval=1m
+    @GetMapping("/{symbol}/candles/current")
+    public ResponseEntity<Candle> currentCandle(@PathVariable String symbol,
+                                                @RequestParam(defaultValue = "1m") String interval) {
+        Optional<CandleInterval> parsed = CandleInterval.fromCode(interval);
+        if (parsed.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (candles == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return candles.current(symbol, parsed.get())
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    // Velas cerradas: GET /api/stocks/AAPL/candles?interval=5m&from=...&to=..., por defecto las últimas 24 horas
+    @GetMapping("/{symbol}/candles")
+    public ResponseEntity<List<Candle>> candles(@PathVariable String symbol,
+                                                @RequestParam(defaultValue = "1m") String interval,
+                                                @RequestParam(required = false) Instant from,
+                                                @RequestParam(required = false) Instant to,
+                                                @RequestParam(defaultValue = "1000") int limit) {
+        Optional<CandleInterval> parsed = CandleInterval.fromCode(interval);
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(DEFAULT_HISTORY_RANGE);
+        if (parsed.isEmpty() || !start.isBefore(end) || limit < 1 || limit > MAX_HISTORY_POINTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (candles == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(candles.history(symbol, parsed.get(), start, end, limit));
+    }
 }
@@ -1,11 +1,145 @@
 package com.example.stocks.config;
 
+import com.example.stocks.messaging.IngestBackPressure;
+import io.awspring.cloud.autoconfigure.sqs.SqsProperties;
+import io.awspring.cloud.sqs.config.SqsMessageListenerContainerFactory;
+import io.awspring.cloud.sqs.listener.BackPressureMode;
+import io.awspring.cloud.sqs.listener.SqsContainerOptionsBuilder;
+import io.awspring.cloud.sqs.listener.backpressure.BackPressureHandlerFactories;
+import io.awspring.cloud.sqs.listener.errorhandler.AsyncErrorHandler;
+import io.awspring.cloud.sqs.listener.errorhandler.ErrorHandler;
+import io.awspring.cloud.sqs.listener.interceptor.AsyncMessageInterceptor;
+import io.awspring.cloud.sqs.listener.interceptor.MessageInterceptor;
+import io.awspring.cloud.sqs.support.converter.MessagingMessageConverter;
+import io.awspring.cloud.sqs.support.observation.SqsListenerObservation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 
-// Nota: Con spring-cloud-aws-starter-sqs, la configuración por defecto es suficiente
-// para el ejercicio. Si se deseas personalizar la infraestructura de listeners SQS,
-// se puede introducir aquí una configuración avanzada basada en la documentación
-// de Spring Cloud AWS (3.x).
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Configuración de los contenedores de listeners SQS.
+// Declaramos defaultSqsListenerContainerFactory en lugar de la de la autoconfiguración, que con
+// Spring Boot 3.5 no arranca: Spring Cloud AWS 4 pasa a las opciones las propiedades sin fijar
+// (spring.cloud.aws.sqs.queue-not-found-strategy, ...) como null. La factoría replica lo que
+// haría la autoconfiguración (error handlers, interceptores, observabilidad,
+// QueueNotFoundStrategy y spring.cloud.aws.sqs.listener.*) y le añade los ajustes de app.sqs.*
+// (ContainerTuning) y la contrapresión de IngestBackPressure. El modo lote usa la misma
+// factoría: Spring Cloud AWS lo deduce de la firma de SqsStockBatchListener
+// (List<Message<...>>), y solo uno de los dos listeners está activo.
+//
+// Con spring.threads.virtual.enabled=true los listeners pasan cada mensaje a un hilo virtual
+// (LISTENER_EXECUTOR) y devuelven el future: Spring Cloud AWS exige que sus propios hilos sean
+// MessageExecutionThread, que no pueden ser virtuales, pero así no quedan bloqueados por JPA
+// o Redis y max-concurrent-messages limita los mensajes en vuelo, no los hilos.
 @Configuration
 public class AwsSqsConfig {
+    public static final String LISTENER_EXECUTOR = "sqsListenerExecutor";
+    // Límites de la API de SQS para ReceiveMessage
+    static final int MAX_MESSAGES_PER_RECEIVE = 10;
+    static final Duration MAX_LONG_POLL = Duration.ofSeconds(20);
+
+    /**
+     * Ajustes comunes de los contenedores. El visibility timeout debe cubrir el peor caso de
+     * procesamiento (incluida la espera del coalescer) para que un mensaje no se reentregue
+     * mientras sigue en vuelo.
+     */
+    public record ContainerTuning(int maxConcurrentMessages, int maxMessagesPerPoll, Duration pollTimeout,
+                                  Duration maxDelayBetweenPolls, Duration messageVisibility,
+                                  Duration shutdownTimeout) {
+    }
+
+    // En modo lote, max-messages y poll-timeout de app.sqs.batch.* sustituyen a los generales
+    @Bean
+    public ContainerTuning sqsContainerTuning(
+            @Value("${app.sqs.max-concurrent-messages:10}") int maxConcurrentMessages,
+            @Value("${app.sqs.max-messages-per-poll:10}") int maxMessagesPerPoll,
+            @Value("${app.sqs.poll-timeout:20s}") Duration pollTimeout,
+            @Value("${app.sqs.max-delay-between-polls:5s}") Duration maxDelayBetweenPolls,
+            @Value("${app.sqs.message-visibility:60s}") Duration messageVisibility,
+            @Value("${app.sqs.shutdown-timeout:20s}") Duration shutdownTimeout,
+            @Value("${app.sqs.batch.enabled:false}") boolean batch,
+            @Value("${app.sqs.batch.max-messages:10}") int batchMaxMessages,
+            @Value("${app.sqs.batch.poll-timeout:5s}") Duration batchPollTimeout) {
+        return new ContainerTuning(maxConcurrentMessages, batch ? batchMaxMessages : maxMessagesPerPoll,
+                batch ? batchPollTimeout : pollTimeout, maxDelayBetweenPolls, messageVisibility, shutdownTimeout);
+    }
+
+    @Bean
+    public SqsMessageListenerContainerFactory<Object> defaultSqsListenerContainerFactory(
+            SqsAsyncClient sqsAsyncClient,
+            MessagingMessageConverter<?> messageConverter,
+            SqsProperties sqsProperties,
+            ObjectProvider<AsyncErrorHandler<Object>> asyncErrorHandler,
+            ObjectProvider<ErrorHandler<Object>> errorHandler,
+            ObjectProvider<AsyncMessageInterceptor<Object>> asyncInterceptors,
+            ObjectProvider<MessageInterceptor<Object>> interceptors,
+            ObjectProvider<ObservationRegistry> observationRegistry,
+            ObjectProvider<SqsListenerObservation.Convention> observationConvention,
+            ContainerTuning tuning,
+            ObjectProvider<IngestBackPressure> backPressure) {
+        SqsMessageListenerContainerFactory<Object> factory = new SqsMessageListenerContainerFactory<>();
+        factory.setSqsAsyncClient(sqsAsyncClient);
+        asyncErrorHandler.ifAvailable(factory::setErrorHandler);
+        errorHandler.ifAvailable(factory::setErrorHandler);
+        asyncInterceptors.forEach(factory::addMessageInterceptor);
+        interceptors.forEach(factory::addMessageInterceptor);
+        factory.configure(options -> {
+            options.messageConverter(messageConverter);
+            tune(options, tuning, backPressure.getIfAvailable());
+            applyProperties(options, sqsProperties);
+            if (sqsProperties.isObservationEnabled()) {
+                observationRegistry.ifAvailable(options::observationRegistry);
+                observationConvention.ifAvailable(options::observationConvention);
+            }
+        });
+        return factory;
+    }
+
+    @Bean(name = LISTENER_EXECUTOR, destroyMethod = "close")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService sqsListenerExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    static void tune(SqsContainerOptionsBuilder options, ContainerTuning tuning,
+                     @Nullable IngestBackPressure backPressure) {
+        int perPoll = Math.min(tuning.maxMessagesPerPoll(), MAX_MESSAGES_PER_RECEIVE);
+        options.maxMessagesPerPoll(perPoll)
+                // Con más mensajes en vuelo que por poll, el contenedor lanza varios polls a la vez (prefetch)
+                .maxConcurrentMessages(Math.max(perPoll, tuning.maxConcurrentMessages()))
+                .pollTimeout(tuning.pollTimeout().compareTo(MAX_LONG_POLL) > 0 ? MAX_LONG_POLL : tuning.pollTimeout())
+                .maxDelayBetweenPolls(tuning.maxDelayBetweenPolls())
+                .messageVisibility(tuning.messageVisibility())
+                .listenerShutdownTimeout(tuning.shutdownTimeout());
+        if (backPressure != null) {
+            // La misma cadena que BackPressureMode.AUTO, más el límite adaptativo
+            options.backPressureMode(BackPressureMode.AUTO)
+                    .backPressureHandlerFactory(BackPressureHandlerFactories.compositeBackPressureHandler(
+                            BackPressureHandlerFactories.concurrencyLimiterBackPressureHandler(),
+                            backPressure.handlerFactory(),
+                            BackPressureHandlerFactories.throughputBackPressureHandler()));
+        }
+    }
+
+    // Solo las propiedades fijadas: lo explícito en spring.cloud.aws.sqs.* prevalece sobre app.sqs.*
+    static void applyProperties(SqsContainerOptionsBuilder options, SqsProperties properties) {
+        SqsProperties.Listener listener = properties.getListener();
+        PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        map.from(properties.getQueueNotFoundStrategy()).to(options::queueNotFoundStrategy);
+        map.from(listener.getMaxConcurrentMessages()).to(options::maxConcurrentMessages);
+        map.from(listener.getMaxMessagesPerPoll()).to(options::maxMessagesPerPoll);
+        map.from(listener.getPollTimeout()).to(options::pollTimeout);
+        map.from(listener.getMaxDelayBetweenPolls()).to(options::maxDelayBetweenPolls);
+        map.from(listener.getAutoStartup()).to(options::autoStartup);
+    }
 }
@@ -0,0 +1,19 @@
+package com.example.stocks.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Modo reactivo (spring.main.web-application-type=reactive). Con Tomcat también en el classpath
+// Spring Boot lo usaría para WebFlux; se fuerza Netty, que atiende todas las conexiones con unos
+// pocos hilos de event loop. server.port y server.compression se le aplican igual.
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
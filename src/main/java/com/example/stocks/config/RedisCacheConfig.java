@@ -0,0 +1,25 @@
+package com.example.stocks.config;
+
+import com.example.stocks.service.StockCacheService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+// Suscripción al canal de invalidación de la caché local (L1) de StockCacheService,
+// para que una escritura en cualquier pod invalide la L1 del resto. Solo con la L1 activada.
+@Configuration
+@ConditionalOnProperty(name = "app.cache.local.enabled", havingValue = "true")
+public class RedisCacheConfig {
+
+    @Bean
+    public RedisMessageListenerContainer stockCacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory, StockCacheService stockCacheService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(stockCacheService, new ChannelTopic(StockCacheService.INVALIDATION_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.stocks.config;
+
+import com.example.stocks.service.StockPriceStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+// Suscripción al canal de precios, para que cada pod entregue a sus clientes SSE
+// los precios escritos por cualquier pod.
+@Configuration
+@ConditionalOnProperty(name = "app.stream.enabled", havingValue = "true", matchIfMissing = true)
+public class RedisStreamConfig {
+
+    @Bean
+    public RedisMessageListenerContainer stockPriceStreamListenerContainer(
+            RedisConnectionFactory connectionFactory, StockPriceStream stockPriceStream) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(stockPriceStream, new ChannelTopic(StockPriceStream.CHANNEL));
+        return container;
+    }
+}
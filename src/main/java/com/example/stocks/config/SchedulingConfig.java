@@ -0,0 +1,10 @@
+package com.example.stocks.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Tareas periódicas (mantenimiento de particiones del histórico)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
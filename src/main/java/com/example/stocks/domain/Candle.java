@@ -0,0 +1,26 @@
+package com.example.stocks.domain;
+
+import java.time.Instant;
+
+/**
+ * Vela OHLC de un símbolo para el intervalo [start, start + interval). {@code firstAt} y
+ * {@code lastAt} son los updatedAt del primer y último tick, y permiten combinar velas
+ * parciales del mismo intervalo (de otro pod o de ticks que llegan tarde).
+ */
+public record Candle(String symbol, CandleInterval interval, Instant start,
+                     Price open, Price high, Price low, Price close, long count,
+                     Instant firstAt, Instant lastAt) {
+
+    public Candle merge(Candle other) {
+        boolean earlier = other.firstAt.isBefore(firstAt);
+        boolean later = !other.lastAt.isBefore(lastAt);
+        return new Candle(symbol, interval, start,
+                earlier ? other.open : open,
+                high.compareTo(other.high) >= 0 ? high : other.high,
+                low.compareTo(other.low) <= 0 ? low : other.low,
+                later ? other.close : close,
+                count + other.count,
+                earlier ? other.firstAt : firstAt,
+                later ? other.lastAt : lastAt);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.stocks.domain;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// Intervalos de vela soportados; el código ("1s", "1m", "5m") es el que se usa en API y base de datos
+public enum CandleInterval {
+    S1("1s", Duration.ofSeconds(1)),
+    M1("1m", Duration.ofMinutes(1)),
+    M5("5m", Duration.ofMinutes(5));
+
+    private final String code;
+    private final long millis;
+
+    CandleInterval(String code, Duration length) {
+        this.code = code;
+        this.millis = length.toMillis();
+    }
+
+    @JsonValue
+    public String code() {
+        return code;
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    public static Optional<CandleInterval> fromCode(String code) {
+        for (CandleInterval interval : values()) {
+            if (interval.code.equals(code)) return Optional.of(interval);
+        }
+        return Optional.empty();
+    }
+}
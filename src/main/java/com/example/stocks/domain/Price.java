@@ -0,0 +1,158 @@
+package com.example.stocks.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.CharBuffer;
+
+/**
+ * Precio en coma fija: un {@code long} de diezmilésimas, la misma escala que la columna
+ * {@code price numeric(19, 4)}. Se parsea y se formatea sin crear {@link BigDecimal}, que solo
+ * aparece en {@link #of(BigDecimal)} y {@link #toBigDecimal()} para quien lo necesite.
+ *
+ * En JSON se representa como un número (por ejemplo {@code 195.12}). Precios con más de
+ * cuatro decimales se redondean HALF_UP, igual que Postgres al guardarlos en la columna.
+ */
+@JsonSerialize(using = Price.Serializer.class)
+@JsonDeserialize(using = Price.Deserializer.class)
+public record Price(long units) implements Comparable<Price> {
+    public static final int SCALE = 4;
+    private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L};
+    private static final long ONE = POW10[SCALE];
+
+    public static Price ofUnits(long units) {
+        return new Price(units);
+    }
+
+    public static Price of(BigDecimal value) {
+        try {
+            return new Price(value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Precio fuera de rango: " + value);
+        }
+    }
+
+    public static Price parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parsea un decimal en notación plana ({@code -?\d+(\.\d+)?}) directamente a diezmilésimas.
+     * Exponentes o más de cuatro decimales pasan por {@link BigDecimal}.
+     *
+     * @throws NumberFormatException si el texto no es un número o no cabe en un {@code long}
+     */
+    public static Price parse(CharSequence text, int start, int end) {
+        int i = start;
+        boolean negative = i < end && text.charAt(i) == '-';
+        if (negative || (i < end && text.charAt(i) == '+')) i++;
+        if (i == end) throw new NumberFormatException("Precio vacío");
+
+        long units = 0;
+        int decimals = -1;
+        boolean digits = false;
+        try {
+            for (; i < end; i++) {
+                char c = text.charAt(i);
+                if (c == '.' && decimals < 0) {
+                    decimals = 0;
+                    continue;
+                }
+                if (c < '0' || c > '9' || decimals == SCALE) {
+                    return of(new BigDecimal(text.subSequence(start, end).toString()));
+                }
+                units = Math.addExact(Math.multiplyExact(units, 10L), c - '0');
+                digits = true;
+                if (decimals >= 0) decimals++;
+            }
+            if (!digits) throw new NumberFormatException("Precio sin dígitos");
+            units = Math.multiplyExact(units, POW10[SCALE - Math.max(decimals, 0)]);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Precio fuera de rango: " + text.subSequence(start, end));
+        }
+        return new Price(negative ? -units : units);
+    }
+
+    // Con la escala mínima: 10 -> 10, 195.5000 -> 195.5
+    public BigDecimal toBigDecimal() {
+        long unscaled = units;
+        int scale = SCALE;
+        while (scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    public StringBuilder appendTo(StringBuilder sb) {
+        long whole = units / ONE;
+        long fraction = Math.abs(units % ONE);
+        if (units < 0 && whole == 0) sb.append('-');
+        sb.append(whole);
+        if (fraction != 0) {
+            int digits = SCALE;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+            sb.append('.');
+            for (long p = POW10[digits - 1]; p > fraction; p /= 10) {
+                sb.append('0');
+            }
+            sb.append(fraction);
+        }
+        return sb;
+    }
+
+    @Override
+    public int compareTo(Price other) {
+        return Long.compare(units, other.units);
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder(24)).toString();
+    }
+
+    static final class Serializer extends StdSerializer<Price> {
+        Serializer() {
+            super(Price.class);
+        }
+
+        @Override
+        public void serialize(Price value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(value.toString());
+        }
+    }
+
+    static final class Deserializer extends StdDeserializer<Price> {
+        Deserializer() {
+            super(Price.class);
+        }
+
+        @Override
+        public Price deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            JsonToken token = p.currentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                    && token != JsonToken.VALUE_STRING) {
+                return (Price) ctxt.handleUnexpectedToken(Price.class, p);
+            }
+            try {
+                // Se lee el texto del número tal cual viene en el JSON, sin pasar por double ni BigDecimal
+                return parse(CharBuffer.wrap(p.getTextCharacters(), p.getTextOffset(), p.getTextLength()));
+            } catch (NumberFormatException e) {
+                return (Price) ctxt.handleWeirdStringValue(Price.class, p.getText(), e.getMessage());
+            }
+        }
+    }
+}
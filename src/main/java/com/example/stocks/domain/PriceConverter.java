@@ -0,0 +1,21 @@
+package com.example.stocks.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.math.BigDecimal;
+
+// Mapea Price a la columna numeric(19, 4); el driver JDBC sigue trabajando con BigDecimal.
+@Converter
+public class PriceConverter implements AttributeConverter<Price, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Price price) {
+        return price != null ? price.toBigDecimal() : null;
+    }
+
+    @Override
+    public Price convertToEntityAttribute(BigDecimal value) {
+        return value != null ? Price.of(value) : null;
+    }
+}
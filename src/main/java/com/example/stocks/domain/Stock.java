@@ -15,7 +15,8 @@ public class Stock {
     private String symbol;
 
     @Column(nullable = false, precision = 19, scale = 4)
-    private BigDecimal price;
+    @Convert(converter = PriceConverter.class)
+    private Price price;
 
     @Column(nullable = false)
     private Instant updatedAt;
@@ -23,6 +24,10 @@ public class Stock {
     public Stock() {}
 
     public Stock(String symbol, BigDecimal price, Instant updatedAt) {
+        this(symbol, price != null ? Price.of(price) : null, updatedAt);
+    }
+
+    public Stock(String symbol, Price price, Instant updatedAt) {
         this.symbol = symbol;
         this.price = price;
         this.updatedAt = updatedAt;
@@ -31,8 +36,11 @@ public class Stock {
     public Long getId() { return id; }
     public String getSymbol() { return symbol; }
     public void setSymbol(String symbol) { this.symbol = symbol; }
-    public BigDecimal getPrice() { return price; }
-    public void setPrice(BigDecimal price) { this.price = price; }
+    public BigDecimal getPrice() { return price != null ? price.toBigDecimal() : null; }
+    public void setPrice(BigDecimal price) { this.price = price != null ? Price.of(price) : null; }
+    // Acceso sin BigDecimal para la ruta de ingesta
+    public Price getFixedPrice() { return price; }
+    public void setFixedPrice(Price price) { this.price = price; }
     public Instant getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
 }
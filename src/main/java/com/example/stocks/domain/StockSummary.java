@@ -0,0 +1,10 @@
+package com.example.stocks.domain;
+
+import java.time.Instant;
+
+/**
+ * Proyección de solo lectura de {@link Stock} para los endpoints de consulta.
+ * Al no ser una entidad gestionada, Hibernate no guarda snapshots para el dirty checking.
+ */
+public record StockSummary(String symbol, Price price, Instant updatedAt) {
+}
@@ -0,0 +1,7 @@
+package com.example.stocks.domain;
+
+import java.time.Instant;
+
+// Un tick de precio del histórico (tabla stock_ticks, particionada por día)
+public record StockTick(String symbol, Price price, Instant updatedAt) {
+}
@@ -0,0 +1,142 @@
+package com.example.stocks.messaging;
+
+import com.example.stocks.service.IngestMetrics;
+import io.awspring.cloud.sqs.listener.backpressure.BackPressureHandler;
+import io.awspring.cloud.sqs.listener.backpressure.BackPressureHandlerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Contrapresión adaptativa para los contenedores SQS (app.sqs.backpressure.enabled, activo por
+ * defecto).
+ *
+ * Cada sample-interval mira la latencia media reciente de escritura en BD, commit incluido
+ * ({@link IngestMetrics#WRITE_TIMER}), y la espera media por una conexión de Hikari
+ * (hikaricp.connections.acquire). Si alguna supera su umbral, la fracción de
+ * max-concurrent-messages que se deja en vuelo se reduce a la mitad; si no, se recupera poco a
+ * poco (AIMD). Así el contenedor deja de pedir mensajes a SQS mientras la base de datos va
+ * lenta, en lugar de acumularlos en memoria hasta que venza su visibility timeout.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sqs.backpressure.enabled", havingValue = "true", matchIfMissing = true)
+public class IngestBackPressure {
+    private static final Logger log = LoggerFactory.getLogger(IngestBackPressure.class);
+    static final String POOL_ACQUIRE_TIMER = "hikaricp.connections.acquire";
+    static final double MIN_FACTOR = 0.05;
+    static final double RECOVERY_STEP = 0.1;
+
+    private final MeterRegistry meterRegistry;
+    private final long maxWriteLatencyNanos;
+    private final long maxPoolWaitNanos;
+    private volatile double factor = 1.0;
+    private final Window writes = new Window();
+    private final Window poolWaits = new Window();
+
+    @Autowired
+    public IngestBackPressure(MeterRegistry meterRegistry,
+            @Value("${app.sqs.backpressure.max-write-latency:500ms}") Duration maxWriteLatency,
+            @Value("${app.sqs.backpressure.max-pool-wait:100ms}") Duration maxPoolWait) {
+        this.meterRegistry = meterRegistry;
+        this.maxWriteLatencyNanos = maxWriteLatency.toNanos();
+        this.maxPoolWaitNanos = maxPoolWait.toNanos();
+        Gauge.builder("stocks.sqs.backpressure.factor", this, IngestBackPressure::factor)
+                .description("Fracción de max-concurrent-messages permitida en vuelo")
+                .register(meterRegistry);
+    }
+
+    public double factor() {
+        return factor;
+    }
+
+    @Scheduled(fixedDelayString = "${app.sqs.backpressure.sample-interval:1s}")
+    public void sample() {
+        long writeLatency = writes.meanSinceLastSample(meterRegistry.find(IngestMetrics.WRITE_TIMER).timer());
+        long poolWait = poolWaits.meanSinceLastSample(meterRegistry.find(POOL_ACQUIRE_TIMER).timer());
+        double previous = factor;
+        if (writeLatency > maxWriteLatencyNanos || poolWait > maxPoolWaitNanos) {
+            factor = Math.max(MIN_FACTOR, previous / 2);
+            if (previous == 1.0) {
+                log.warn("Contrapresión SQS activada: escritura {} ms, espera de conexión {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(writeLatency), TimeUnit.NANOSECONDS.toMillis(poolWait));
+            }
+        } else if (previous < 1.0) {
+            factor = Math.min(1.0, previous + RECOVERY_STEP);
+            if (factor == 1.0) log.info("Contrapresión SQS desactivada");
+        }
+    }
+
+    // Se añade a la cadena de BackPressureHandler de cada contenedor (ver AwsSqsConfig)
+    public BackPressureHandlerFactory handlerFactory() {
+        return options -> new Handler(options.getMaxConcurrentMessages());
+    }
+
+    /**
+     * Limita los mensajes en vuelo a {@code ceil(totalPermits * factor)}, nunca menos de uno. Si
+     * no concede ninguno, el CompositeBackPressureHandler espera a que se libere alguno.
+     */
+    final class Handler implements BackPressureHandler {
+        private final int totalPermits;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        Handler(int totalPermits) {
+            this.totalPermits = totalPermits;
+        }
+
+        int limit() {
+            return Math.max(1, (int) Math.ceil(totalPermits * factor));
+        }
+
+        @Override
+        public int request(int amount) {
+            int limit = limit();
+            while (true) {
+                int current = inFlight.get();
+                int granted = Math.max(0, Math.min(amount, limit - current));
+                if (granted == 0 || inFlight.compareAndSet(current, current + granted)) {
+                    return granted;
+                }
+            }
+        }
+
+        @Override
+        public void release(int amount, ReleaseReason reason) {
+            inFlight.addAndGet(-amount);
+        }
+
+        // El ConcurrencyLimiterBlockingBackPressureHandler de la cadena ya espera a los mensajes en vuelo
+        @Override
+        public boolean drain(Duration timeout) {
+            return true;
+        }
+    }
+
+    // Media de un Timer entre dos muestras consecutivas, a partir de sus totales acumulados
+    private static final class Window {
+        private long count;
+        private double totalNanos;
+
+        long meanSinceLastSample(@Nullable Timer timer) {
+            if (timer == null) return 0;
+            long c = timer.count();
+            double t = timer.totalTime(TimeUnit.NANOSECONDS);
+            long dc = c - count;
+            double dt = t - totalNanos;
+            count = c;
+            totalNanos = t;
+            return dc > 0 ? (long) (dt / dc) : 0;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.stocks.messaging;
+
+import com.example.stocks.domain.Price;
+import io.awspring.cloud.sqs.operations.SendResult;
+import io.awspring.cloud.sqs.operations.SqsTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga sintética para SQS (app.seeder.load.enabled=true, ver {@link SqsStockSeeder}).
+ *
+ * Publica {@code rate} ticks por segundo repartidos entre {@code senders} hilos virtuales, en
+ * lotes de {@link #BATCH_SIZE} con {@code sendMany} (una llamada SendMessageBatch por lote).
+ * Los símbolos siguen una distribución tipo Zipf con exponente {@code skew}: el símbolo de
+ * rango k recibe una fracción proporcional a 1/k^skew, como en producción, donde unos pocos
+ * valores concentran la mayoría de los ticks. Cada símbolo hace un paseo aleatorio de precio.
+ */
+public class SqsLoadGenerator {
+    private static final Logger log = LoggerFactory.getLogger(SqsLoadGenerator.class);
+    // Máximo de mensajes por SendMessageBatch en SQS
+    static final int BATCH_SIZE = 10;
+    private static final long INITIAL_UNITS = 100L * 10_000L;
+    // Si un emisor se retrasa más que esto, no intenta recuperar el hueco de golpe
+    private static final long MAX_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final SqsTemplate sqsTemplate;
+    private final String queueName;
+    private final int rate;
+    private final int senders;
+    private final Duration duration;
+    private final Duration reportInterval;
+    private final String[] symbols;
+    private final double[] cdf;
+    private final AtomicLongArray prices;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lastMicros = new AtomicLong();
+    private volatile boolean stopped;
+
+    public SqsLoadGenerator(SqsTemplate sqsTemplate, String queueName, int rate, int symbolCount, double skew,
+                            int senders, Duration duration, Duration reportInterval) {
+        if (rate < 1 || symbolCount < 1 || senders < 1) {
+            throw new IllegalArgumentException("rate, symbols y senders deben ser mayores que 0");
+        }
+        this.sqsTemplate = sqsTemplate;
+        this.queueName = queueName;
+        this.rate = rate;
+        this.senders = senders;
+        this.duration = duration;
+        this.reportInterval = reportInterval;
+        this.symbols = new String[symbolCount];
+        this.cdf = new double[symbolCount];
+        this.prices = new AtomicLongArray(symbolCount);
+        double total = 0;
+        for (int k = 0; k < symbolCount; k++) {
+            symbols[k] = String.format("SYM%05d", k + 1);
+            total += 1.0 / Math.pow(k + 1, skew);
+            cdf[k] = total;
+            prices.set(k, INITIAL_UNITS);
+        }
+        for (int k = 0; k < symbolCount; k++) {
+            cdf[k] /= total;
+        }
+    }
+
+    /**
+     * Publica hasta que pasa {@code duration} (cero: hasta {@link #stop()}) y registra el
+     * ritmo conseguido cada {@code reportInterval}.
+     */
+    public void run() throws InterruptedException {
+        log.info("Generador de carga SQS: {} msg/s, {} símbolos, {} emisores, duración {}",
+                rate, symbols.length, senders, duration.isZero() ? "ilimitada" : duration);
+        long start = System.nanoTime();
+        long end = duration.isZero() ? Long.MAX_VALUE : start + duration.toNanos();
+        // Cada emisor envía un lote cada BATCH_SIZE * senders / rate segundos
+        long interval = Math.max(1, (long) (1e9 * BATCH_SIZE * senders / rate));
+        List<Thread> threads = new ArrayList<>(senders);
+        for (int i = 0; i < senders; i++) {
+            long offset = interval * i / senders;
+            threads.add(Thread.ofVirtual().name("sqs-load-", i).start(() -> send(start + offset, interval, end)));
+        }
+
+        long lastSent = 0;
+        long lastReport = start;
+        while (!stopped && System.nanoTime() < end) {
+            long wait = Math.min(reportInterval.toNanos(), end - System.nanoTime());
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            long now = System.nanoTime();
+            long total = sent.get();
+            log.info("Carga SQS: {} msg/s (objetivo {}), {} enviados, {} fallidos",
+                    perSecond(total - lastSent, now - lastReport), rate, total, failed.get());
+            lastSent = total;
+            lastReport = now;
+        }
+        stop();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        log.info("Generador de carga SQS terminado: {} enviados, {} fallidos, media {} msg/s",
+                sent.get(), failed.get(), perSecond(sent.get(), System.nanoTime() - start));
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    public long sent() {
+        return sent.get();
+    }
+
+    public long failed() {
+        return failed.get();
+    }
+
+    private void send(long first, long interval, long end) {
+        long next = first;
+        while (!stopped && next < end) {
+            long delay = next - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+                continue;
+            }
+            List<Message<StockUpdateMessage>> batch = nextBatch();
+            try {
+                SendResult.Batch<StockUpdateMessage> result = sqsTemplate.sendMany(queueName, batch);
+                sent.addAndGet(result.successful().size());
+                failed.addAndGet(result.failed().size());
+            } catch (RuntimeException e) {
+                failed.addAndGet(batch.size());
+                log.debug("Fallo al enviar un lote de carga: {}", e.getMessage());
+            }
+            next = Math.max(next + interval, System.nanoTime() - MAX_LAG_NANOS);
+        }
+    }
+
+    List<Message<StockUpdateMessage>> nextBatch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Message<StockUpdateMessage>> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int k = sampleRank(random.nextDouble());
+            // Paseo aleatorio de ±0,1% por tick, sin bajar de una diezmilésima
+            long units = prices.updateAndGet(k, p -> Math.max(1, p + Math.round(p * (random.nextDouble() - 0.5) * 0.002)));
+            batch.add(MessageBuilder.withPayload(new StockUpdateMessage(symbols[k], Price.ofUnits(units), nextTimestamp())).build());
+        }
+        return batch;
+    }
+
+    // En microsegundos, la precisión de stock_ticks y de la caché, y estrictamente creciente entre
+    // todos los mensajes y senders: dos ticks de un mismo lote nunca empatan en el last-write-wins
+    Instant nextTimestamp() {
+        long now = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+        return Instant.EPOCH.plus(lastMicros.updateAndGet(last -> Math.max(last + 1, now)), ChronoUnit.MICROS);
+    }
+
+    // Rango (base 0) cuyo intervalo de la CDF contiene u
+    int sampleRank(double u) {
+        int i = Arrays.binarySearch(cdf, u);
+        return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+    }
+
+    String symbol(int rank) {
+        return symbols[rank];
+    }
+
+    private static long perSecond(long count, long nanos) {
+        return nanos > 0 ? Math.round(count * 1e9 / nanos) : 0;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.stocks.messaging;
+
+import com.example.stocks.config.AwsSqsConfig;
+import com.example.stocks.domain.Stock;
+import com.example.stocks.service.CandleService;
+import com.example.stocks.service.IngestMetrics;
+import com.example.stocks.service.StockService;
+import io.awspring.cloud.sqs.annotation.SqsListener;
+import io.awspring.cloud.sqs.annotation.SqsListenerAcknowledgementMode;
+import io.awspring.cloud.sqs.listener.acknowledgement.BatchAcknowledgement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Listener SQS en modo lote (app.sqs.batch.enabled=true).
+ *
+ * Cada lote se persiste en una única transacción y se confirma de una vez. Los mensajes
+ * inválidos no se confirman, y si la transacción del lote falla se reintenta mensaje a
+ * mensaje para que un payload erróneo solo haga fallar el suyo. Con el coalescer activo,
+ * el lote se entrega a {@link StockUpdateCoalescer} y cada mensaje se confirma cuando el
+ * flush que lo lleva ha hecho commit.
+ */
+@Component
+@ConditionalOnProperty(name = "app.sqs.batch.enabled", havingValue = "true")
+public class SqsStockBatchListener {
+    private static final Logger log = LoggerFactory.getLogger(SqsStockBatchListener.class);
+    private final StockService stockService;
+    @Nullable
+    private final StockUpdateCoalescer coalescer;
+    @Nullable
+    private final CandleService candles;
+    @Nullable
+    private final Executor executor;
+    private final IngestMetrics metrics;
+
+    @Autowired
+    public SqsStockBatchListener(StockService stockService, @Nullable StockUpdateCoalescer coalescer,
+                                 @Nullable CandleService candles,
+                                 @Nullable @Qualifier(AwsSqsConfig.LISTENER_EXECUTOR) Executor executor,
+                                 IngestMetrics metrics) {
+        this.stockService = stockService;
+        this.coalescer = coalescer;
+        this.candles = candles;
+        this.executor = executor;
+        this.metrics = metrics;
+    }
+
+    // Con hilos virtuales (AwsSqsConfig.LISTENER_EXECUTOR) el lote se procesa fuera del hilo del contenedor.
+    // El parámetro List activa el modo lote; el listener decide qué mensajes confirma.
+    @SqsListener(value = "${app.sqs.queue-name}", acknowledgementMode = SqsListenerAcknowledgementMode.MANUAL)
+    public CompletableFuture<Void> onMessages(List<Message<StockUpdateMessage>> messages,
+                                              BatchAcknowledgement<StockUpdateMessage> acknowledgement) {
+        if (executor != null) {
+            return CompletableFuture.supplyAsync(() -> process(messages, acknowledgement), executor)
+                    .thenCompose(Function.identity());
+        }
+        return process(messages, acknowledgement);
+    }
+
+    private CompletableFuture<Void> process(List<Message<StockUpdateMessage>> messages,
+                                            BatchAcknowledgement<StockUpdateMessage> acknowledgement) {
+        List<Message<StockUpdateMessage>> valid = new ArrayList<>(messages.size());
+        for (Message<StockUpdateMessage> message : messages) {
+            if (isValid(message.getPayload())) {
+                metrics.received(message.getPayload().updatedAt());
+                valid.add(message);
+            } else {
+                metrics.invalid();
+                log.warn("Mensaje SQS inválido, no se confirma: {}", message.getPayload());
+            }
+        }
+        if (valid.isEmpty()) return CompletableFuture.completedFuture(null);
+        log.debug("Lote SQS recibido: {} mensajes ({} válidos)", messages.size(), valid.size());
+        if (candles != null) {
+            for (Message<StockUpdateMessage> message : valid) {
+                StockUpdateMessage msg = message.getPayload();
+                candles.record(msg.symbol(), msg.price(), msg.updatedAt() != null ? msg.updatedAt() : Instant.now());
+            }
+        }
+        if (coalescer != null) {
+            return coalesce(valid, acknowledgement);
+        }
+
+        try {
+            stockService.upsertAll(valid.stream().map(m -> toStock(m.getPayload())).toList());
+            acknowledgement.acknowledge(valid);
+        } catch (RuntimeException e) {
+            log.warn("Fallo al persistir el lote de {} mensajes, reintentando uno a uno", valid.size(), e);
+            acknowledgeIndividually(valid, acknowledgement);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<Void> coalesce(List<Message<StockUpdateMessage>> messages,
+                                             BatchAcknowledgement<StockUpdateMessage> acknowledgement) {
+        List<CompletableFuture<Message<StockUpdateMessage>>> committed = messages.stream()
+                .map(m -> coalescer.submit(m.getPayload()).handle((ok, e) -> e == null ? m : null))
+                .toList();
+        return CompletableFuture.allOf(committed.toArray(CompletableFuture[]::new))
+                .thenCompose(ignored -> {
+                    List<Message<StockUpdateMessage>> processed = committed.stream()
+                            .map(CompletableFuture::join)
+                            .filter(Objects::nonNull)
+                            .toList();
+                    if (processed.size() < messages.size()) metrics.failed(messages.size() - processed.size());
+                    return processed.isEmpty()
+                            ? CompletableFuture.completedFuture(null)
+                            : acknowledgement.acknowledgeAsync(processed);
+                });
+    }
+
+    private void acknowledgeIndividually(List<Message<StockUpdateMessage>> messages,
+                                         BatchAcknowledgement<StockUpdateMessage> acknowledgement) {
+        List<Message<StockUpdateMessage>> processed = new ArrayList<>(messages.size());
+        for (Message<StockUpdateMessage> message : messages) {
+            try {
+                stockService.upsertAll(List.of(toStock(message.getPayload())));
+                processed.add(message);
+            } catch (RuntimeException e) {
+                metrics.failed(1);
+                log.error("Mensaje SQS descartado del lote: {}", message.getPayload(), e);
+            }
+        }
+        if (!processed.isEmpty()) {
+            acknowledgement.acknowledge(processed);
+        }
+    }
+
+    private static boolean isValid(StockUpdateMessage msg) {
+        return msg != null && msg.symbol() != null && !msg.symbol().isBlank() && msg.price() != null;
+    }
+
+    private static Stock toStock(StockUpdateMessage msg) {
+        Instant ts = msg.updatedAt() != null ? msg.updatedAt() : Instant.now();
+        return new Stock(msg.symbol(), msg.price(), ts);
+    }
+}
@@ -1,29 +1,79 @@
 package com.example.stocks.messaging;
 
+import com.example.stocks.config.AwsSqsConfig;
+import com.example.stocks.service.CandleService;
+import com.example.stocks.service.IngestMetrics;
 import com.example.stocks.service.StockService;
 import io.awspring.cloud.sqs.annotation.SqsListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 @Component
+@ConditionalOnProperty(name = "app.sqs.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class SqsStockListener {
     private static final Logger log = LoggerFactory.getLogger(SqsStockListener.class);
     private final StockService stockService;
+    @Nullable
+    private final StockUpdateCoalescer coalescer;
+    @Nullable
+    private final CandleService candles;
+    @Nullable
+    private final Executor executor;
+    private final IngestMetrics metrics;
 
-    public SqsStockListener(StockService stockService) {
+    @Autowired
+    public SqsStockListener(StockService stockService, @Nullable StockUpdateCoalescer coalescer,
+                            @Nullable CandleService candles,
+                            @Nullable @Qualifier(AwsSqsConfig.LISTENER_EXECUTOR) Executor executor,
+                            IngestMetrics metrics) {
         this.stockService = stockService;
+        this.coalescer = coalescer;
+        this.candles = candles;
+        this.executor = executor;
+        this.metrics = metrics;
     }
 
     // Nota: el nombre de la cola se externaliza en application.yml
+    // El mensaje se confirma cuando el future termina: con el coalescer activo, tras el flush.
     @SqsListener("${app.sqs.queue-name}")
-    public void onMessage(@Payload StockUpdateMessage msg) {
-        if (msg == null) return;
+    public CompletableFuture<Void> onMessage(@Payload StockUpdateMessage msg) {
+        if (msg == null) return CompletableFuture.completedFuture(null);
+        if (executor != null) {
+            return CompletableFuture.supplyAsync(() -> process(msg), executor).thenCompose(Function.identity());
+        }
+        return process(msg);
+    }
+
+    private CompletableFuture<Void> process(StockUpdateMessage msg) {
         log.info("Mensaje SQS recibido: {} {} @ {}", msg.symbol(), msg.price(), msg.updatedAt());
+        metrics.received(msg.updatedAt());
         Instant ts = msg.updatedAt() != null ? msg.updatedAt() : Instant.now();
-        stockService.upsertFromMessage(msg.symbol(), msg.price(), ts);
+        // Las velas ven todos los ticks, también los que el coalescer agrupa antes de persistir
+        if (candles != null && msg.symbol() != null && msg.price() != null) {
+            candles.record(msg.symbol(), msg.price(), ts);
+        }
+        if (coalescer != null) {
+            return coalescer.submit(msg).whenComplete((ok, e) -> {
+                if (e != null) metrics.failed(1);
+            });
+        }
+        try {
+            stockService.upsertFromMessage(msg.symbol(), msg.price(), ts);
+        } catch (RuntimeException e) {
+            metrics.failed(1);
+            throw e;
+        }
+        return CompletableFuture.completedFuture(null);
     }
 }
@@ -1,19 +1,26 @@
 package com.example.stocks.messaging;
 
+import com.example.stocks.domain.Price;
 import io.awspring.cloud.sqs.operations.SqsTemplate;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Simple seeder that publishes a few stock updates to the SQS queue at startup.
+ *
+ * With app.seeder.load.enabled=true it runs {@link SqsLoadGenerator} in the background instead,
+ * to reproduce production-like load locally (docker-compose + LocalStack).
  */
 @Component
 public class SqsStockSeeder implements CommandLineRunner {
@@ -21,27 +28,65 @@ public class SqsStockSeeder implements CommandLineRunner {
 
     private final SqsTemplate sqsTemplate;
     private final String queueName;
+    @Nullable
+    private final SqsLoadGenerator loadGenerator;
 
+    public SqsStockSeeder(SqsTemplate sqsTemplate, String queueName) {
+        this(sqsTemplate, queueName, null);
+    }
+
+    @Autowired
     public SqsStockSeeder(SqsTemplate sqsTemplate,
-            @Value("${app.sqs.queue-name}") String queueName) {
+            @Value("${app.sqs.queue-name}") String queueName,
+            @Value("${app.seeder.load.enabled:false}") boolean loadEnabled,
+            @Value("${app.seeder.load.rate:1000}") int rate,
+            @Value("${app.seeder.load.symbols:500}") int symbols,
+            @Value("${app.seeder.load.skew:1.0}") double skew,
+            @Value("${app.seeder.load.senders:8}") int senders,
+            @Value("${app.seeder.load.duration:5m}") Duration duration,
+            @Value("${app.seeder.load.report-interval:5s}") Duration reportInterval) {
+        this(sqsTemplate, queueName, loadEnabled
+                ? new SqsLoadGenerator(sqsTemplate, queueName, rate, symbols, skew, senders, duration, reportInterval)
+                : null);
+    }
+
+    SqsStockSeeder(SqsTemplate sqsTemplate, String queueName, @Nullable SqsLoadGenerator loadGenerator) {
         this.sqsTemplate = sqsTemplate;
         this.queueName = Objects.requireNonNull(queueName, "queueName must not be null");
+        this.loadGenerator = loadGenerator;
     }
 
     @Override
     @SuppressWarnings("null")
     public void run(String... args) {
+        if (loadGenerator != null) {
+            // In the background, so that it doesn't delay application startup
+            Thread.ofVirtual().name("sqs-load-generator").start(() -> {
+                try {
+                    loadGenerator.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            return;
+        }
+
         // Prepare at least 5 sample stock updates
         List<StockUpdateMessage> messages = List.of(
-                new StockUpdateMessage("AAPL", new BigDecimal("195.12"), Instant.now()),
-                new StockUpdateMessage("MSFT", new BigDecimal("421.87"), Instant.now()),
-                new StockUpdateMessage("AMZN", new BigDecimal("176.45"), Instant.now()),
-                new StockUpdateMessage("GOOGL", new BigDecimal("147.33"), Instant.now()),
-                new StockUpdateMessage("TSLA", new BigDecimal("234.56"), Instant.now()));
+                new StockUpdateMessage("AAPL", Price.parse("195.12"), Instant.now()),
+                new StockUpdateMessage("MSFT", Price.parse("421.87"), Instant.now()),
+                new StockUpdateMessage("AMZN", Price.parse("176.45"), Instant.now()),
+                new StockUpdateMessage("GOOGL", Price.parse("147.33"), Instant.now()),
+                new StockUpdateMessage("TSLA", Price.parse("234.56"), Instant.now()));
 
         messages.forEach(msg -> {
             sqsTemplate.send(to -> to.queue(queueName).payload(msg));
             log.info("Seed message sent to SQS: {} {} @ {}", msg.symbol(), msg.price(), msg.updatedAt());
         });
     }
+
+    @PreDestroy
+    void stop() {
+        if (loadGenerator != null) loadGenerator.stop();
+    }
 }
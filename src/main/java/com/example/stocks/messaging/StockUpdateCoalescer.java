@@ -0,0 +1,159 @@
+package com.example.stocks.messaging;
+
+import com.example.stocks.domain.Stock;
+import com.example.stocks.service.StockService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Etapa de ingesta entre los listeners SQS y {@link StockService}
+ * (app.ingest.coalescing.enabled=true).
+ *
+ * Guarda solo la actualización más reciente de cada símbolo y la persiste al alcanzar
+ * max-symbols símbolos distintos o cada max-delay, así que una ráfaga de ticks de un
+ * mismo símbolo acaba en una sola escritura en BD y en caché. El future devuelto por
+ * {@link #submit} se completa cuando el flush que lleva el mensaje ha hecho commit, y
+ * el listener solo confirma el mensaje SQS entonces.
+ */
+@Component
+@ConditionalOnProperty(name = "app.ingest.coalescing.enabled", havingValue = "true")
+public class StockUpdateCoalescer {
+    private static final Logger log = LoggerFactory.getLogger(StockUpdateCoalescer.class);
+
+    private final StockService stockService;
+    private final int maxSymbols;
+    private final ConcurrentMap<String, Pending> buffer = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    private final DistributionSummary flushSize;
+    private final DistributionSummary coalescingRatio;
+    private final Timer flushLatency;
+
+    public StockUpdateCoalescer(StockService stockService,
+            MeterRegistry meterRegistry,
+            @Value("${app.ingest.coalescing.max-symbols:500}") int maxSymbols,
+            @Value("${app.ingest.coalescing.max-delay:100ms}") Duration maxDelay) {
+        this.stockService = stockService;
+        this.maxSymbols = maxSymbols;
+        this.flushSize = DistributionSummary.builder("stocks.ingest.flush.size")
+                .description("Símbolos escritos por flush")
+                .register(meterRegistry);
+        this.coalescingRatio = DistributionSummary.builder("stocks.ingest.coalescing.ratio")
+                .description("Mensajes recibidos por cada escritura en un flush")
+                .register(meterRegistry);
+        this.flushLatency = Timer.builder("stocks.ingest.flush.latency")
+                .description("Duración de cada flush (upsert + caché)")
+                .register(meterRegistry);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(
+                r -> Thread.ofPlatform().name("stock-coalescer").daemon().unstarted(r));
+        this.flusher.scheduleWithFixedDelay(this::flush,
+                maxDelay.toMillis(), maxDelay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public CompletableFuture<Void> submit(StockUpdateMessage msg) {
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        Stock update = new Stock(msg.symbol().toUpperCase(), msg.price(),
+                msg.updatedAt() != null ? msg.updatedAt() : Instant.now());
+        buffer.compute(update.getSymbol(), (symbol, pending) -> {
+            if (pending == null) return new Pending(update, committed);
+            pending.merge(update, committed);
+            return pending;
+        });
+        if (buffer.size() >= maxSymbols && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+        return committed;
+    }
+
+    void flush() {
+        if (buffer.isEmpty()) return;
+        long start = System.nanoTime();
+        List<Pending> batch = new ArrayList<>(buffer.size());
+        for (String symbol : buffer.keySet()) {
+            Pending pending = buffer.remove(symbol);
+            if (pending != null) batch.add(pending);
+        }
+        if (batch.isEmpty()) return;
+
+        int messages = 0;
+        List<Stock> updates = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            messages += pending.waiters.size();
+            updates.add(pending.latest);
+        }
+        try {
+            stockService.upsertAll(updates);
+            batch.forEach(Pending::commit);
+        } catch (RuntimeException e) {
+            log.warn("Fallo en el flush de {} símbolos, reintentando uno a uno", batch.size(), e);
+            for (Pending pending : batch) {
+                try {
+                    stockService.upsertAll(List.of(pending.latest));
+                    pending.commit();
+                } catch (RuntimeException ex) {
+                    log.error("Actualización descartada en el flush: {}", pending.latest.getSymbol(), ex);
+                    pending.fail(ex);
+                }
+            }
+        }
+        flushSize.record(batch.size());
+        coalescingRatio.record((double) messages / batch.size());
+        flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    // Accedido solo dentro de buffer.compute(...) o tras retirarlo del mapa con remove(...)
+    private static final class Pending {
+        private Stock latest;
+        private final List<CompletableFuture<Void>> waiters = new ArrayList<>(1);
+
+        Pending(Stock update, CompletableFuture<Void> waiter) {
+            this.latest = update;
+            this.waiters.add(waiter);
+        }
+
+        void merge(Stock update, CompletableFuture<Void> waiter) {
+            if (!update.getUpdatedAt().isBefore(latest.getUpdatedAt())) {
+                latest = update;
+            }
+            waiters.add(waiter);
+        }
+
+        void commit() {
+            waiters.forEach(w -> w.complete(null));
+        }
+
+        void fail(Throwable e) {
+            waiters.forEach(w -> w.completeExceptionally(e));
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package com.example.stocks.messaging;
 
+import com.example.stocks.domain.Price;
+
 import java.math.BigDecimal;
 import java.time.Instant;
 
-// DTO que representa el mensaje recibido por SQS
-public record StockUpdateMessage(String symbol, BigDecimal price, Instant updatedAt) {}
+// DTO que representa el mensaje recibido por SQS. El precio se deserializa directamente a coma fija.
+public record StockUpdateMessage(String symbol, Price price, Instant updatedAt) {
+
+    public StockUpdateMessage(String symbol, BigDecimal price, Instant updatedAt) {
+        this(symbol, price != null ? Price.of(price) : null, updatedAt);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.stocks.repository;
+
+import com.example.stocks.domain.Candle;
+import com.example.stocks.domain.CandleInterval;
+import com.example.stocks.domain.Price;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Velas OHLC cerradas en la tabla stock_candles. Cada pod solo ve parte de los mensajes de SQS,
+ * así que el upsert combina la vela recibida con la ya guardada en vez de sobrescribirla:
+ * máximo/mínimo, suma de ticks, y open/close del tick más temprano/tardío.
+ *
+ * Como stock_ticks, la tabla está particionada por día (UTC) de {@code start_at}, con una
+ * partición DEFAULT, para que la retención borre días enteros en lugar de filas sueltas.
+ */
+@Repository
+public class CandleRepository implements DailyPartitionedTable {
+    private static final String COLUMNS =
+            "symbol, interval_code, start_at, open, high, low, close, tick_count, first_at, last_at";
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS stock_candles (
+                symbol        varchar(32)    NOT NULL,
+                interval_code varchar(4)     NOT NULL,
+                start_at      timestamptz    NOT NULL,
+                open          numeric(19, 4) NOT NULL,
+                high          numeric(19, 4) NOT NULL,
+                low           numeric(19, 4) NOT NULL,
+                close         numeric(19, 4) NOT NULL,
+                tick_count    bigint         NOT NULL,
+                first_at      timestamptz    NOT NULL,
+                last_at       timestamptz    NOT NULL,
+                PRIMARY KEY (symbol, interval_code, start_at)
+            ) PARTITION BY RANGE (start_at)""";
+    // Las versiones anteriores creaban stock_candles sin particionar: esa tabla pasa a ser la
+    // partición DEFAULT, y las filas se mueven a su día al crear cada partición.
+    private static final String PARTITION_PLAIN_TABLE = "DO $$ BEGIN"
+            + " PERFORM pg_advisory_xact_lock(hashtext('stock_candles'));"
+            + " IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('stock_candles')) = 'r' THEN"
+            + " ALTER TABLE stock_candles RENAME TO stock_candles_default;"
+            + " ALTER TABLE stock_candles_default RENAME CONSTRAINT stock_candles_pkey TO stock_candles_default_pkey;"
+            + " " + CREATE_TABLE + ";"
+            + " ALTER TABLE stock_candles ATTACH PARTITION stock_candles_default DEFAULT;"
+            + " END IF;"
+            + " END $$";
+    static final String UPSERT = "INSERT INTO stock_candles AS c (" + COLUMNS + ")"
+            + " VALUES (?, ?, ?, ? * 0.0001, ? * 0.0001, ? * 0.0001, ? * 0.0001, ?, ?, ?)"
+            + " ON CONFLICT (symbol, interval_code, start_at) DO UPDATE SET"
+            + " open = CASE WHEN EXCLUDED.first_at < c.first_at THEN EXCLUDED.open ELSE c.open END,"
+            + " close = CASE WHEN EXCLUDED.last_at >= c.last_at THEN EXCLUDED.close ELSE c.close END,"
+            + " high = GREATEST(c.high, EXCLUDED.high),"
+            + " low = LEAST(c.low, EXCLUDED.low),"
+            + " tick_count = c.tick_count + EXCLUDED.tick_count,"
+            + " first_at = LEAST(c.first_at, EXCLUDED.first_at),"
+            + " last_at = GREATEST(c.last_at, EXCLUDED.last_at)";
+    static final String FIND_RANGE = "SELECT " + COLUMNS + " FROM stock_candles"
+            + " WHERE symbol = ? AND interval_code = ? AND start_at >= ? AND start_at < ?"
+            + " ORDER BY start_at LIMIT ?";
+
+    private final JdbcTemplate jdbc;
+    private final DailyPartitions partitions;
+
+    public CandleRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.partitions = new DailyPartitions(jdbc, "stock_candles", "start_at", COLUMNS);
+    }
+
+    @Override
+    public void createSchema() {
+        jdbc.execute(PARTITION_PLAIN_TABLE);
+        jdbc.execute(CREATE_TABLE);
+        partitions.createDefaultPartition();
+    }
+
+    @Override
+    public void createPartition(LocalDate day) {
+        partitions.create(day);
+    }
+
+    @Override
+    public List<LocalDate> findPartitionDays() {
+        return partitions.days();
+    }
+
+    @Override
+    public void dropPartition(LocalDate day) {
+        partitions.drop(day);
+    }
+
+    @Override
+    public int deleteFromDefaultPartitionBefore(Instant cutoff) {
+        return partitions.deleteFromDefaultBefore(cutoff);
+    }
+
+    // Una sola vela por clave: un INSERT multi-fila no puede tocar dos veces la misma fila.
+    // En una transacción para que un reintento tras un fallo no sume dos veces los ticks.
+    @Transactional
+    public void upsertAll(Collection<Candle> candles) {
+        if (candles.isEmpty()) return;
+        jdbc.batchUpdate(UPSERT, candles, candles.size(), (ps, c) -> {
+            ps.setString(1, c.symbol());
+            ps.setString(2, c.interval().code());
+            ps.setObject(3, utc(c.start()));
+            ps.setLong(4, c.open().units());
+            ps.setLong(5, c.high().units());
+            ps.setLong(6, c.low().units());
+            ps.setLong(7, c.close().units());
+            ps.setLong(8, c.count());
+            ps.setObject(9, utc(c.firstAt()));
+            ps.setObject(10, utc(c.lastAt()));
+        });
+    }
+
+    public List<Candle> findBySymbolBetween(String symbol, CandleInterval interval, Instant from, Instant to,
+                                            int limit) {
+        return jdbc.query(FIND_RANGE, (rs, i) -> map(rs, interval),
+                symbol, interval.code(), utc(from), utc(to), limit);
+    }
+
+    private static Candle map(ResultSet rs, CandleInterval interval) throws SQLException {
+        return new Candle(rs.getString(1), interval, instant(rs, 3),
+                Price.of(rs.getBigDecimal(4)), Price.of(rs.getBigDecimal(5)),
+                Price.of(rs.getBigDecimal(6)), Price.of(rs.getBigDecimal(7)),
+                rs.getLong(8), instant(rs, 9), instant(rs, 10));
+    }
+
+    private static Instant instant(ResultSet rs, int column) throws SQLException {
+        return rs.getObject(column, OffsetDateTime.class).toInstant();
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.stocks.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tabla particionada por día (UTC) con una partición DEFAULT. El servicio de retención de cada
+ * tabla crea las particiones de los próximos días y elimina las que quedan fuera de plazo.
+ */
+public interface DailyPartitionedTable {
+
+    void createSchema();
+
+    void createPartition(LocalDate day);
+
+    List<LocalDate> findPartitionDays();
+
+    void dropPartition(LocalDate day);
+
+    int deleteFromDefaultPartitionBefore(Instant cutoff);
+}
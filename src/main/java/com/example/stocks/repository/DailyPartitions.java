@@ -0,0 +1,98 @@
+package com.example.stocks.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Particiones diarias (UTC) de una tabla particionada por rango de una columna timestamptz,
+ * con una partición {@code <tabla>_default} para las filas fuera de rango. La usan
+ * stock_ticks y stock_candles.
+ */
+final class DailyPartitions {
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbc;
+    private final String table;
+    private final String column;
+    private final String columns;
+    private final String defaultPartition;
+
+    /**
+     * @param column  columna de la clave de partición
+     * @param columns todas las columnas, para mover filas de la partición DEFAULT
+     */
+    DailyPartitions(JdbcTemplate jdbc, String table, String column, String columns) {
+        this.jdbc = jdbc;
+        this.table = table;
+        this.column = column;
+        this.columns = columns;
+        this.defaultPartition = table + "_default";
+    }
+
+    void createDefaultPartition() {
+        jdbc.execute("CREATE TABLE IF NOT EXISTS " + defaultPartition + " PARTITION OF " + table + " DEFAULT");
+    }
+
+    /**
+     * Partición para el día UTC [day, day + 1). Si la DEFAULT ya tiene filas de ese día (un
+     * instante más allá de precreate-days), un CREATE ... PARTITION OF fallaría al validarla:
+     * la partición se crea suelta, recibe esas filas y después se adjunta. Todo va en un único
+     * bloque DO, así que es atómico, y el advisory lock evita que dos pods la creen a la vez.
+     */
+    void create(LocalDate day) {
+        String name = partitionName(day);
+        String from = "'" + day + " 00:00:00+00'";
+        String to = "'" + day.plusDays(1) + " 00:00:00+00'";
+        jdbc.execute("DO $$ BEGIN"
+                + " PERFORM pg_advisory_xact_lock(hashtext('" + table + "'));"
+                + " IF to_regclass('" + name + "') IS NULL THEN"
+                + " CREATE TABLE " + name + " (LIKE " + table + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS);"
+                + " WITH moved AS (DELETE FROM " + defaultPartition
+                + " WHERE " + column + " >= " + from + " AND " + column + " < " + to
+                + " RETURNING " + columns + ")"
+                + " INSERT INTO " + name + " (" + columns + ") SELECT " + columns + " FROM moved;"
+                + " ALTER TABLE " + table + " ATTACH PARTITION " + name + " FOR VALUES FROM (" + from + ") TO (" + to + ");"
+                + " END IF;"
+                + " END $$");
+    }
+
+    // Días con partición propia (sin contar la DEFAULT)
+    List<LocalDate> days() {
+        String prefix = table + "_";
+        List<LocalDate> days = new ArrayList<>();
+        for (String name : jdbc.queryForList("SELECT c.relname FROM pg_inherits i"
+                + " JOIN pg_class c ON c.oid = i.inhrelid"
+                + " JOIN pg_class p ON p.oid = i.inhparent"
+                + " WHERE p.relname = '" + table + "'", String.class)) {
+            if (!name.startsWith(prefix)) continue;
+            try {
+                days.add(LocalDate.parse(name.substring(prefix.length()), PARTITION_SUFFIX));
+            } catch (DateTimeParseException e) {
+                // La partición DEFAULT u otras tablas que no siguen el patrón
+            }
+        }
+        return days;
+    }
+
+    // Borrar una partición entera es inmediato y no deja filas muertas, a diferencia de un DELETE
+    void drop(LocalDate day) {
+        jdbc.execute("DROP TABLE IF EXISTS " + partitionName(day));
+    }
+
+    int deleteFromDefaultBefore(Instant cutoff) {
+        return jdbc.update("DELETE FROM " + defaultPartition + " WHERE " + column + " < ?",
+                OffsetDateTime.ofInstant(cutoff, ZoneOffset.UTC));
+    }
+
+    String partitionName(LocalDate day) {
+        return table + "_" + PARTITION_SUFFIX.format(day);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.stocks.repository;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.StockSummary;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Readable;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+
+/**
+ * Lecturas de la tabla stocks por R2DBC para el modo reactivo: las mismas proyecciones que
+ * {@link StockRepository}, sin ocupar un hilo mientras Postgres responde.
+ *
+ * El pool se crea aquí y no como bean: con un ConnectionFactory en el contexto Spring Boot deja
+ * de configurar el DataSource JDBC, que la ingesta (JPA) sigue necesitando. Por eso mismo
+ * R2dbcAutoConfiguration está excluida en application.yml.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStockReader {
+    static final String SELECT = "SELECT symbol, price, updated_at FROM stocks";
+
+    private final ConnectionPool pool;
+    private final DatabaseClient db;
+    private final int fetchSize;
+
+    public ReactiveStockReader(@Value("${app.reactive.r2dbc.url}") String url,
+                               @Value("${app.reactive.r2dbc.username}") String username,
+                               @Value("${app.reactive.r2dbc.password}") String password,
+                               @Value("${app.reactive.r2dbc.pool-size:20}") int poolSize,
+                               @Value("${app.reactive.r2dbc.acquire-timeout:5s}") Duration acquireTimeout,
+                               @Value("${app.reactive.r2dbc.fetch-size:500}") int fetchSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .initialSize(0)
+                .maxSize(poolSize)
+                .maxAcquireTime(acquireTimeout)
+                .build());
+        this.db = DatabaseClient.create(pool);
+        this.fetchSize = fetchSize;
+    }
+
+    public Mono<StockSummary> findSummaryBySymbol(String symbol) {
+        return db.sql(SELECT + " WHERE symbol = :symbol")
+                .bind("symbol", symbol)
+                .map(ReactiveStockReader::summary)
+                .one();
+    }
+
+    public Flux<StockSummary> findSummariesBySymbolIn(Collection<String> symbols) {
+        // Un único parámetro array: el plan de la consulta no depende del número de símbolos
+        return db.sql(SELECT + " WHERE symbol = ANY(:symbols)")
+                .bind("symbols", symbols.toArray(String[]::new))
+                .map(ReactiveStockReader::summary)
+                .all();
+    }
+
+    // Paginación por cursor (keyset) sobre el índice único de symbol, como en StockRepository
+    public Flux<StockSummary> findSummariesBySymbolGreaterThan(String after, int limit) {
+        return db.sql(SELECT + " WHERE symbol > :after ORDER BY symbol LIMIT :limit")
+                .bind("after", after)
+                .bind("limit", limit)
+                .map(ReactiveStockReader::summary)
+                .all();
+    }
+
+    // Toda la tabla por un cursor de fetch-size filas: el ritmo lo marca el cliente que la consume
+    public Flux<StockSummary> findAllOrderedBySymbol() {
+        return db.sql(SELECT + " ORDER BY symbol")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(ReactiveStockReader::summary)
+                .all();
+    }
+
+    private static StockSummary summary(Readable row) {
+        BigDecimal price = row.get("price", BigDecimal.class);
+        OffsetDateTime updatedAt = row.get("updated_at", OffsetDateTime.class);
+        return new StockSummary(row.get("symbol", String.class),
+                price != null ? Price.of(price) : null,
+                updatedAt != null ? updatedAt.toInstant() : null);
+    }
+
+    @PreDestroy
+    void close() {
+        pool.dispose();
+    }
+}
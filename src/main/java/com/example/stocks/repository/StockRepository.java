@@ -1,10 +1,28 @@
 package com.example.stocks.repository;
 
 import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.StockSummary;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface StockRepository extends JpaRepository<Stock, Long> {
+public interface StockRepository extends JpaRepository<Stock, Long>, StockRepositoryCustom {
     Optional<Stock> findBySymbol(String symbol);
+
+    // Consultas de lectura: devuelven proyecciones, no entidades gestionadas, así que no hay
+    // nada que vigilar para el flush. La transacción de solo lectura (BEGIN READ ONLY, sin
+    // flush de Hibernate) cubre solo la consulta, no las llamadas a Redis del servicio.
+    @Transactional(readOnly = true)
+    Optional<StockSummary> findSummaryBySymbol(String symbol);
+
+    @Transactional(readOnly = true)
+    List<StockSummary> findSummariesBySymbolIn(Collection<String> symbols);
+
+    // Paginación por cursor (keyset): usa el índice único de symbol, sin OFFSET
+    @Transactional(readOnly = true)
+    List<StockSummary> findSummariesBySymbolGreaterThanOrderBySymbolAsc(String after, Limit limit);
 }
@@ -0,0 +1,30 @@
+package com.example.stocks.repository;
+
+import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.StockSummary;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Operaciones masivas que no acumulan entidades en el contexto de persistencia de JPA.
+public interface StockRepositoryCustom {
+
+    /**
+     * Inserta o actualiza los stocks con {@code INSERT ... ON CONFLICT (symbol) DO UPDATE},
+     * en una sola sentencia multi-fila por cada bloque de hasta 1000 símbolos.
+     * Si un símbolo aparece varias veces, solo se escribe la actualización más reciente, y una
+     * fila existente solo se sobrescribe si su {@code updated_at} es anterior (last-write-wins).
+     *
+     * @return las actualizaciones que se han escrito en la base de datos (sin las obsoletas)
+     */
+    List<Stock> upsertAll(Collection<Stock> stocks);
+
+    /**
+     * Recorre todos los stocks ordenados por símbolo con un cursor de servidor, leyendo
+     * {@code fetchSize} filas por round trip. Se leen como proyecciones, sin entidades en el
+     * contexto de persistencia, por lo que la memoria no crece con el tamaño de la tabla.
+     * Requiere una transacción activa.
+     */
+    void forEachOrderedBySymbol(int fetchSize, Consumer<StockSummary> action);
+}
@@ -0,0 +1,87 @@
+package com.example.stocks.repository;
+
+import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.StockSummary;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+class StockRepositoryCustomImpl implements StockRepositoryCustom {
+    static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private static final String INSERT = "INSERT INTO stocks (symbol, price, updated_at) VALUES ";
+    // El precio viaja como bigint de diezmilésimas; Postgres lo pasa a numeric de forma exacta
+    private static final String ROW = "(?, ? * 0.0001, ?)";
+    private static final String ON_CONFLICT = " ON CONFLICT (symbol) DO UPDATE"
+            + " SET price = EXCLUDED.price, updated_at = EXCLUDED.updated_at"
+            + " WHERE stocks.updated_at < EXCLUDED.updated_at"
+            + " RETURNING symbol";
+
+    private final JdbcTemplate jdbc;
+    private final EntityManager entityManager;
+
+    StockRepositoryCustomImpl(JdbcTemplate jdbc, EntityManager entityManager) {
+        this.jdbc = jdbc;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public void forEachOrderedBySymbol(int fetchSize, Consumer<StockSummary> action) {
+        try (Stream<StockSummary> rows = entityManager
+                .createQuery("select new com.example.stocks.domain.StockSummary(s.symbol, s.price, s.updatedAt)"
+                        + " from Stock s order by s.symbol", StockSummary.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream()) {
+            rows.forEach(action);
+        }
+    }
+
+    @Override
+    public List<Stock> upsertAll(Collection<Stock> stocks) {
+        // Postgres no permite que un mismo ON CONFLICT toque dos veces la misma fila
+        Map<String, Stock> latest = new LinkedHashMap<>();
+        for (Stock stock : stocks) {
+            latest.merge(stock.getSymbol(), stock,
+                    (a, b) -> b.getUpdatedAt().isBefore(a.getUpdatedAt()) ? a : b);
+        }
+        List<Stock> rows = new ArrayList<>(latest.values());
+        List<Stock> written = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Stock> chunk = rows.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, rows.size()));
+            Set<String> symbols = new HashSet<>(upsertChunk(chunk));
+            for (Stock stock : chunk) {
+                if (symbols.contains(stock.getSymbol())) written.add(stock);
+            }
+        }
+        return written;
+    }
+
+    private List<String> upsertChunk(List<Stock> chunk) {
+        StringBuilder sql = new StringBuilder(INSERT.length() + chunk.size() * (ROW.length() + 2) + ON_CONFLICT.length())
+                .append(INSERT);
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? ROW : ", " + ROW);
+        }
+        sql.append(ON_CONFLICT);
+        return jdbc.query(sql.toString(), ps -> {
+            int p = 1;
+            for (Stock stock : chunk) {
+                ps.setString(p++, stock.getSymbol());
+                ps.setLong(p++, stock.getFixedPrice().units());
+                ps.setObject(p++, OffsetDateTime.ofInstant(stock.getUpdatedAt(), ZoneOffset.UTC));
+            }
+        }, (rs, i) -> rs.getString(1));
+    }
+}
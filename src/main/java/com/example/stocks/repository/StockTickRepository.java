@@ -0,0 +1,94 @@
+package com.example.stocks.repository;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.StockTick;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Histórico de ticks en Postgres: una tabla de solo inserción particionada por rango de
+ * {@code updated_at}, con una partición por día (UTC) y una partición DEFAULT para ticks fuera
+ * de rango. La clave primaria (symbol, updated_at) INCLUDE (price) hace a la vez de índice
+ * cubriente para las consultas por rango y de deduplicación de reentregas de SQS.
+ *
+ * Hibernate no sabe declarar tablas particionadas, así que el esquema se gestiona aquí por JDBC.
+ */
+@Repository
+public class StockTickRepository implements DailyPartitionedTable {
+    private static final String CREATE_TABLE = """
+            CREATE TABLE IF NOT EXISTS stock_ticks (
+                symbol     varchar(32)    NOT NULL,
+                price      numeric(19, 4) NOT NULL,
+                updated_at timestamptz    NOT NULL,
+                PRIMARY KEY (symbol, updated_at) INCLUDE (price)
+            ) PARTITION BY RANGE (updated_at)""";
+    // Con reWriteBatchedInserts el driver convierte el lote en INSERTs multi-fila
+    static final String INSERT = "INSERT INTO stock_ticks (symbol, price, updated_at)"
+            + " VALUES (?, ? * 0.0001, ?) ON CONFLICT DO NOTHING";
+    static final String FIND_RANGE = "SELECT symbol, price, updated_at FROM stock_ticks"
+            + " WHERE symbol = ? AND updated_at >= ? AND updated_at < ?"
+            + " ORDER BY updated_at LIMIT ?";
+
+    private final JdbcTemplate jdbc;
+    private final DailyPartitions partitions;
+
+    public StockTickRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.partitions = new DailyPartitions(jdbc, "stock_ticks", "updated_at", "symbol, price, updated_at");
+    }
+
+    @Override
+    public void createSchema() {
+        jdbc.execute(CREATE_TABLE);
+        partitions.createDefaultPartition();
+    }
+
+    @Override
+    public void createPartition(LocalDate day) {
+        partitions.create(day);
+    }
+
+    @Override
+    public List<LocalDate> findPartitionDays() {
+        return partitions.days();
+    }
+
+    @Override
+    public void dropPartition(LocalDate day) {
+        partitions.drop(day);
+    }
+
+    @Override
+    public int deleteFromDefaultPartitionBefore(Instant cutoff) {
+        return partitions.deleteFromDefaultBefore(cutoff);
+    }
+
+    public void appendAll(Collection<Stock> ticks) {
+        if (ticks.isEmpty()) return;
+        jdbc.batchUpdate(INSERT, ticks, ticks.size(), (ps, tick) -> {
+            ps.setString(1, tick.getSymbol());
+            ps.setLong(2, tick.getFixedPrice().units());
+            ps.setObject(3, utc(tick.getUpdatedAt()));
+        });
+    }
+
+    // Ticks de [from, to) en orden cronológico; se resuelve con un index-only scan sobre la PK
+    public List<StockTick> findBySymbolBetween(String symbol, Instant from, Instant to, int limit) {
+        return jdbc.query(FIND_RANGE,
+                (rs, i) -> new StockTick(rs.getString(1), Price.of(rs.getBigDecimal(2)),
+                        rs.getObject(3, OffsetDateTime.class).toInstant()),
+                symbol, utc(from), utc(to), limit);
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return OffsetDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.stocks.service;
+
+import com.example.stocks.repository.CandleRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Mantiene las particiones diarias de stock_candles igual que {@link StockTickRetentionService}
+ * las de stock_ticks. Crea el esquema al arrancar, antes del primer flush de CandleService.
+ */
+@Service
+@ConditionalOnProperty(name = "app.candles.enabled", havingValue = "true", matchIfMissing = true)
+public class CandleRetentionService {
+    private final DailyPartitionRetention retention;
+
+    @Autowired
+    public CandleRetentionService(CandleRepository repository,
+            @Value("${app.candles.retention:7d}") Duration retention,
+            @Value("${app.candles.precreate-days:2}") int precreateDays) {
+        this(repository, retention, precreateDays, Clock.systemUTC());
+    }
+
+    CandleRetentionService(CandleRepository repository, Duration retention, int precreateDays, Clock clock) {
+        this.retention = new DailyPartitionRetention("Velas", repository, retention, precreateDays, clock);
+    }
+
+    @PostConstruct
+    void init() {
+        retention.init();
+    }
+
+    @Scheduled(cron = "${app.candles.maintenance-cron:0 5 * * * *}", zone = "UTC")
+    public void maintain() {
+        retention.maintain();
+    }
+}
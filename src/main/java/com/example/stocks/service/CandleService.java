@@ -0,0 +1,280 @@
+package com.example.stocks.service;
+
+import com.example.stocks.domain.Candle;
+import com.example.stocks.domain.CandleInterval;
+import com.example.stocks.domain.Price;
+import com.example.stocks.repository.CandleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Velas OHLC de 1s, 1m y 5m calculadas en memoria a medida que llegan los ticks de SQS
+ * (app.candles.enabled, activo por defecto).
+ *
+ * Cada símbolo ocupa un único {@code long[]} con la vela abierta de cada intervalo (precios en
+ * diezmilésimas, instantes en milisegundos), así que el heap por símbolo es fijo y el número de
+ * símbolos está acotado por max-symbols. Un símbolo deja de ocupar sitio cuando se cierran todas
+ * sus velas, así que el límite cuenta los símbolos activos en los últimos minutos. Los arrays se
+ * protegen con un conjunto fijo de {@link ReentrantLock} repartidos por símbolo, no con
+ * synchronized, para no fijar hilos virtuales. Una vela se cierra cuando llega un tick de un
+ * intervalo posterior o, si no llegan más, cuando pasa close-grace desde su fin; las velas cerradas
+ * se encolan y se escriben en lote en stock_candles cada flush-interval (CandleRetentionService
+ * mantiene sus particiones).
+ *
+ * La vela abierta solo refleja los ticks que ha recibido este pod; la base de datos combina
+ * las velas parciales de todos. Un mensaje SQS reentregado cuenta dos veces en {@code count}.
+ */
+@Service
+@ConditionalOnProperty(name = "app.candles.enabled", havingValue = "true", matchIfMissing = true)
+public class CandleService {
+    private static final Logger log = LoggerFactory.getLogger(CandleService.class);
+
+    private static final CandleInterval[] INTERVALS = CandleInterval.values();
+    private static final int START = 0;
+    private static final int FIRST_AT = 1;
+    private static final int LAST_AT = 2;
+    private static final int OPEN = 3;
+    private static final int HIGH = 4;
+    private static final int LOW = 5;
+    private static final int CLOSE = 6;
+    private static final int COUNT = 7;
+    private static final int FIELDS = 8;
+    private static final int LOCK_STRIPES = 64;
+
+    private final CandleRepository repository;
+    private final int maxSymbols;
+    private final long graceMillis;
+    private final Clock clock;
+    private final ConcurrentMap<String, long[]> open = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final BlockingQueue<Candle> closed;
+    private final Counter closedCandles;
+    private final Counter droppedCandles;
+    private final Counter rejectedSymbols;
+
+    @Autowired
+    public CandleService(CandleRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${app.candles.max-symbols:10000}") int maxSymbols,
+            @Value("${app.candles.queue-capacity:100000}") int queueCapacity,
+            @Value("${app.candles.close-grace:2s}") Duration closeGrace) {
+        this(repository, meterRegistry,
+                maxSymbols, queueCapacity, closeGrace, Clock.systemUTC());
+    }
+
+    CandleService(CandleRepository repository, MeterRegistry meterRegistry, int maxSymbols, int queueCapacity,
+            Duration closeGrace, Clock clock) {
+        this.repository = repository;
+        this.maxSymbols = maxSymbols;
+        this.graceMillis = closeGrace.toMillis();
+        this.clock = clock;
+        this.closed = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.closedCandles = Counter.builder("stocks.candles.closed")
+                .description("Velas cerradas y encoladas para persistir")
+                .register(meterRegistry);
+        this.droppedCandles = Counter.builder("stocks.candles.dropped")
+                .description("Velas descartadas por tener la cola llena")
+                .register(meterRegistry);
+        this.rejectedSymbols = Counter.builder("stocks.candles.rejected")
+                .description("Ticks ignorados por superar max-symbols")
+                .register(meterRegistry);
+        Gauge.builder("stocks.candles.pending", closed, BlockingQueue::size)
+                .description("Velas cerradas pendientes de escribir")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Añade un tick a la vela abierta de cada intervalo. Un tick de un intervalo ya cerrado se
+     * encola como vela de un solo tick y se combina con la guardada al persistir.
+     */
+    public void record(String symbol, Price price, Instant updatedAt) {
+        String s = symbol.toUpperCase();
+        long at = updatedAt.toEpochMilli();
+        long units = price.units();
+        ReentrantLock lock = lockFor(s);
+        lock.lock();
+        try {
+            // Bajo el lock del símbolo: closeOlderThan lo retira con el mismo lock
+            long[] state = open.get(s);
+            if (state == null) {
+                if (open.size() >= maxSymbols) {
+                    rejectedSymbols.increment();
+                    return;
+                }
+                state = new long[INTERVALS.length * FIELDS];
+                open.put(s, state);
+            }
+            for (int i = 0; i < INTERVALS.length; i++) {
+                int base = i * FIELDS;
+                long start = Math.floorDiv(at, INTERVALS[i].millis()) * INTERVALS[i].millis();
+                if (state[base + COUNT] == 0) {
+                    open(state, base, start, at, units);
+                } else if (start == state[base + START]) {
+                    if (at < state[base + FIRST_AT]) {
+                        state[base + FIRST_AT] = at;
+                        state[base + OPEN] = units;
+                    }
+                    if (at >= state[base + LAST_AT]) {
+                        state[base + LAST_AT] = at;
+                        state[base + CLOSE] = units;
+                    }
+                    state[base + HIGH] = Math.max(state[base + HIGH], units);
+                    state[base + LOW] = Math.min(state[base + LOW], units);
+                    state[base + COUNT]++;
+                } else if (start > state[base + START]) {
+                    enqueue(toCandle(s, i, state));
+                    open(state, base, start, at, units);
+                } else {
+                    Price p = Price.ofUnits(units);
+                    enqueue(new Candle(s, INTERVALS[i], Instant.ofEpochMilli(start), p, p, p, p, 1,
+                            updatedAt, updatedAt));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // La vela abierta de este pod, si el intervalo al que pertenece no ha terminado todavía
+    public Optional<Candle> current(String symbol, CandleInterval interval) {
+        String s = symbol.toUpperCase();
+        long[] state = open.get(s);
+        if (state == null) return Optional.empty();
+        int base = interval.ordinal() * FIELDS;
+        ReentrantLock lock = lockFor(s);
+        lock.lock();
+        try {
+            if (state[base + COUNT] == 0
+                    || state[base + START] + interval.millis() + graceMillis <= clock.millis()) {
+                return Optional.empty();
+            }
+            return Optional.of(toCandle(s, interval.ordinal(), state));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Velas cerradas y ya persistidas; las de los últimos flush-interval pueden no estar aún
+    public List<Candle> history(String symbol, CandleInterval interval, Instant from, Instant to, int limit) {
+        return repository.findBySymbolBetween(symbol.toUpperCase(), interval, from, to, limit);
+    }
+
+    // Cierra las velas de los símbolos que han dejado de recibir ticks
+    @Scheduled(fixedDelayString = "${app.candles.sweep-interval:1s}")
+    public void closeExpired() {
+        closeOlderThan(clock.millis() - graceMillis);
+    }
+
+    @Scheduled(fixedDelayString = "${app.candles.flush-interval:5s}")
+    public void flush() {
+        List<Candle> drained = new ArrayList<>(closed.size());
+        closed.drainTo(drained);
+        if (drained.isEmpty()) return;
+
+        // Una sola fila por clave: el INSERT multi-fila no puede actualizar dos veces la misma
+        Map<String, Candle> merged = new LinkedHashMap<>();
+        for (Candle c : drained) {
+            merged.merge(c.symbol() + '|' + c.interval().code() + '|' + c.start().toEpochMilli(), c, Candle::merge);
+        }
+        try {
+            repository.upsertAll(merged.values());
+            log.debug("Velas persistidas: {} ({} cerradas)", merged.size(), drained.size());
+        } catch (RuntimeException e) {
+            log.warn("Fallo al persistir {} velas, se reintentan en el siguiente flush", merged.size(), e);
+            for (Candle c : merged.values()) {
+                if (!closed.offer(c)) droppedCandles.increment();
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        closeOlderThan(Long.MAX_VALUE);
+        flush();
+    }
+
+    // Un símbolo sin velas abiertas se retira de open y libera su sitio en max-symbols
+    private void closeOlderThan(long cutoff) {
+        for (Map.Entry<String, long[]> entry : open.entrySet()) {
+            long[] state = entry.getValue();
+            ReentrantLock lock = lockFor(entry.getKey());
+            lock.lock();
+            try {
+                boolean idle = true;
+                for (int i = 0; i < INTERVALS.length; i++) {
+                    int base = i * FIELDS;
+                    if (state[base + COUNT] > 0
+                            && (cutoff == Long.MAX_VALUE || state[base + START] + INTERVALS[i].millis() <= cutoff)) {
+                        enqueue(toCandle(entry.getKey(), i, state));
+                        state[base + COUNT] = 0;
+                    }
+                    idle &= state[base + COUNT] == 0;
+                }
+                if (idle) {
+                    open.remove(entry.getKey(), state);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ReentrantLock lockFor(String symbol) {
+        int h = symbol.hashCode();
+        return locks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    private void enqueue(Candle candle) {
+        if (closed.offer(candle)) {
+            closedCandles.increment();
+        } else {
+            droppedCandles.increment();
+        }
+    }
+
+    private static void open(long[] state, int base, long start, long at, long units) {
+        state[base + START] = start;
+        state[base + FIRST_AT] = at;
+        state[base + LAST_AT] = at;
+        state[base + OPEN] = units;
+        state[base + HIGH] = units;
+        state[base + LOW] = units;
+        state[base + CLOSE] = units;
+        state[base + COUNT] = 1;
+    }
+
+    private static Candle toCandle(String symbol, int interval, long[] state) {
+        int base = interval * FIELDS;
+        return new Candle(symbol, INTERVALS[interval], Instant.ofEpochMilli(state[base + START]),
+                Price.ofUnits(state[base + OPEN]), Price.ofUnits(state[base + HIGH]),
+                Price.ofUnits(state[base + LOW]), Price.ofUnits(state[base + CLOSE]),
+                state[base + COUNT],
+                Instant.ofEpochMilli(state[base + FIRST_AT]), Instant.ofEpochMilli(state[base + LAST_AT]));
+    }
+}
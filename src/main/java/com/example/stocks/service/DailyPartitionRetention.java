@@ -0,0 +1,60 @@
+package com.example.stocks.service;
+
+import com.example.stocks.repository.DailyPartitionedTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Mantenimiento de una tabla particionada por día: crea por adelantado las particiones de los
+ * próximos días y elimina las que quedan fuera de la retención. Es idempotente.
+ */
+final class DailyPartitionRetention {
+    private static final Logger log = LoggerFactory.getLogger(DailyPartitionRetention.class);
+
+    private final String name;
+    private final DailyPartitionedTable table;
+    private final Duration retention;
+    private final int precreateDays;
+    private final Clock clock;
+
+    DailyPartitionRetention(String name, DailyPartitionedTable table, Duration retention, int precreateDays,
+                            Clock clock) {
+        this.name = name;
+        this.table = table;
+        this.retention = retention;
+        this.precreateDays = precreateDays;
+        this.clock = clock;
+    }
+
+    void init() {
+        table.createSchema();
+        maintain();
+    }
+
+    void maintain() {
+        LocalDate today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+        for (int d = 0; d <= precreateDays; d++) {
+            table.createPartition(today.plusDays(d));
+        }
+
+        // Se conservan los días que tienen alguna fila dentro de la retención
+        LocalDate oldestKept = LocalDate.ofInstant(clock.instant().minus(retention), ZoneOffset.UTC);
+        int dropped = 0;
+        for (LocalDate day : table.findPartitionDays()) {
+            if (day.isBefore(oldestKept)) {
+                table.dropPartition(day);
+                dropped++;
+            }
+        }
+        int purged = table.deleteFromDefaultPartitionBefore(oldestKept.atStartOfDay(ZoneOffset.UTC).toInstant());
+        if (dropped > 0 || purged > 0) {
+            log.info("{}: {} particiones eliminadas, {} filas purgadas de la partición DEFAULT",
+                    name, dropped, purged);
+        }
+    }
+}
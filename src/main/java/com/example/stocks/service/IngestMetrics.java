@@ -0,0 +1,107 @@
+package com.example.stocks.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Métricas del camino de ingesta, de SQS a Redis. Todos los tiempos se publican como
+ * histograma (publishPercentileHistogram) con un rango acotado de buckets: los percentiles se
+ * calculan en Prometheus con histogram_quantile y son agregables entre pods, sin el coste de
+ * calcularlos en cada instancia.
+ *
+ * Las latencias "lag" se miden desde {@code updatedAt} del mensaje, así que incluyen la
+ * diferencia de reloj con el productor; los valores negativos se registran como cero.
+ */
+@Component
+public class IngestMetrics {
+    public static final String RECEIVE_LAG = "stocks.ingest.receive.lag";
+    public static final String WRITE_TIMER = "stocks.ingest.write";
+    public static final String END_TO_END_LAG = "stocks.ingest.lag";
+    public static final String MESSAGES = "stocks.ingest.messages";
+    public static final String STALE = "stocks.ingest.stale";
+
+    private final Timer receiveLag;
+    private final Timer write;
+    private final Timer endToEndLag;
+    private final Counter received;
+    private final Counter invalid;
+    private final Counter failed;
+    private final Counter staleDb;
+    private final Counter staleCache;
+
+    public IngestMetrics(MeterRegistry registry) {
+        this.receiveLag = histogram(RECEIVE_LAG, "Desde updatedAt hasta que el listener recibe el mensaje", registry);
+        this.write = histogram(WRITE_TIMER, "Escritura de un lote de ingesta en base de datos, incluido el commit",
+                registry);
+        this.endToEndLag = histogram(END_TO_END_LAG, "Desde updatedAt hasta que el precio es visible en Redis",
+                registry);
+        this.received = messages("received", registry);
+        this.invalid = messages("invalid", registry);
+        this.failed = messages("failed", registry);
+        this.staleDb = stale("db", registry);
+        this.staleCache = stale("cache", registry);
+    }
+
+    static Timer histogram(String name, String description, MeterRegistry registry) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(1))
+                .register(registry);
+    }
+
+    private static Counter messages(String result, MeterRegistry registry) {
+        return Counter.builder(MESSAGES)
+                .description("Mensajes SQS de actualización de precio por resultado")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Counter stale(String stage, MeterRegistry registry) {
+        return Counter.builder(STALE)
+                .description("Ticks descartados por ser más antiguos que el precio guardado")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    public void received(@Nullable Instant updatedAt) {
+        received.increment();
+        if (updatedAt != null) recordLag(receiveLag, updatedAt);
+    }
+
+    public void invalid() {
+        invalid.increment();
+    }
+
+    public void failed(int count) {
+        failed.increment(count);
+    }
+
+    public void written(long nanos) {
+        write.record(Duration.ofNanos(nanos));
+    }
+
+    public void visible(Instant updatedAt) {
+        recordLag(endToEndLag, updatedAt);
+    }
+
+    public void staleInDb(int count) {
+        if (count > 0) staleDb.increment(count);
+    }
+
+    public void staleInCache() {
+        staleCache.increment();
+    }
+
+    private static void recordLag(Timer timer, Instant since) {
+        Duration lag = Duration.between(since, Instant.now());
+        timer.record(lag.isNegative() ? Duration.ZERO : lag);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.stocks.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.ReactiveRedisCallback;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecturas de la caché de precios sin bloquear, para el modo reactivo
+ * (spring.main.web-application-type=reactive).
+ *
+ * Lee Redis con {@link ReactiveStringRedisTemplate}, en las dos disposiciones (string o
+ * hash-buckets), pero comparte con {@link StockCacheService} la L1, sus invalidaciones entre
+ * pods y sus métricas. Las escrituras siguen pasando por {@link StockCacheService}.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStockCacheService {
+
+    private final StockCacheService cacheService;
+    private final ReactiveStringRedisTemplate redis;
+
+    public ReactiveStockCacheService(StockCacheService cacheService, ReactiveStringRedisTemplate redis) {
+        this.cacheService = cacheService;
+        this.redis = redis;
+    }
+
+    // Como StockCacheService#getEntry: vacío si no está ni en la L1 ni en Redis
+    public Mono<StockCacheService.CachedStock> getEntry(String symbol) {
+        String s = symbol.toUpperCase();
+        StockCacheService.CachedStock hit = cacheService.localEntry(s);
+        if (hit != null) return Mono.just(hit);
+        StockCacheHashLayout layout = cacheService.hashLayout();
+        Mono<StockCacheService.CachedStock> remote = layout != null ? readHash(layout, s) : readString(s);
+        return remote
+                .doOnNext(entry -> cacheService.remoteEntry(s, entry))
+                .switchIfEmpty(Mono.fromRunnable(() -> cacheService.remoteEntry(s, null)));
+    }
+
+    /**
+     * Resuelve varios símbolos con un MGET (o un HMGET por bucket) para los que no están en la L1.
+     *
+     * @return las entradas encontradas, indexadas por símbolo en mayúsculas
+     */
+    public Mono<Map<String, StockCacheService.CachedStock>> getEntries(Collection<String> symbols) {
+        Map<String, StockCacheService.CachedStock> found = new HashMap<>();
+        List<String> remote = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            String s = symbol.toUpperCase();
+            StockCacheService.CachedStock hit = cacheService.localEntry(s);
+            if (hit != null) {
+                found.put(s, hit);
+            } else {
+                remote.add(s);
+            }
+        }
+        if (remote.isEmpty()) return Mono.just(found);
+
+        StockCacheHashLayout layout = cacheService.hashLayout();
+        Mono<Map<String, StockCacheService.CachedStock>> fromRedis = layout != null
+                ? readHashes(layout, remote)
+                : readStrings(remote);
+        return fromRedis.map(read -> {
+            for (String s : remote) {
+                StockCacheService.CachedStock entry = read.get(s);
+                cacheService.remoteEntry(s, entry);
+                if (entry != null) found.put(s, entry);
+            }
+            return found;
+        });
+    }
+
+    // Vacío si Redis aún no tiene versión o no responde, igual que StockCacheService#collectionVersion
+    public Mono<Long> collectionVersion() {
+        return redis.opsForValue().get(StockCacheService.VERSION_KEY).mapNotNull(v -> {
+            try {
+                return Long.parseLong(v);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }).onErrorResume(DataAccessException.class, e -> Mono.empty());
+    }
+
+    private Mono<StockCacheService.CachedStock> readString(String symbol) {
+        return redis.opsForValue().get(StockCacheService.PREFIX + symbol).mapNotNull(StockCacheService::decodeOrNull);
+    }
+
+    private Mono<Map<String, StockCacheService.CachedStock>> readStrings(List<String> symbols) {
+        return redis.opsForValue().multiGet(symbols.stream().map(StockCacheService.PREFIX::concat).toList())
+                .map(values -> {
+                    Map<String, StockCacheService.CachedStock> found = new HashMap<>();
+                    for (int i = 0; i < symbols.size(); i++) {
+                        StockCacheService.CachedStock entry = StockCacheService.decodeOrNull(values.get(i));
+                        if (entry != null) found.put(symbols.get(i), entry);
+                    }
+                    return found;
+                });
+    }
+
+    private Mono<StockCacheService.CachedStock> readHash(StockCacheHashLayout layout, String symbol) {
+        return redis.execute((ReactiveRedisCallback<ByteBuffer>) connection -> connection.hashCommands()
+                        .hGet(ByteBuffer.wrap(layout.key(symbol)), utf8(symbol)))
+                .next()
+                .mapNotNull(value -> StockCacheHashLayout.decode(bytes(value)));
+    }
+
+    // Un HMGET por bucket; Lettuce los envía seguidos por la misma conexión sin esperar respuestas
+    private Mono<Map<String, StockCacheService.CachedStock>> readHashes(StockCacheHashLayout layout,
+            List<String> symbols) {
+        return redis.execute((ReactiveRedisCallback<Map<String, StockCacheService.CachedStock>>) connection ->
+                        Flux.fromIterable(layout.byBucket(symbols).entrySet())
+                                .flatMap(bucket -> connection.hashCommands()
+                                        .hMGet(utf8(bucket.getKey()), bucket.getValue().stream()
+                                                .map(ReactiveStockCacheService::utf8)
+                                                .toList())
+                                        .map(values -> decodeAll(bucket.getValue(), values))))
+                .reduce(new HashMap<>(), (all, bucket) -> {
+                    all.putAll(bucket);
+                    return all;
+                });
+    }
+
+    private static Map<String, StockCacheService.CachedStock> decodeAll(List<String> fields, List<ByteBuffer> values) {
+        Map<String, StockCacheService.CachedStock> found = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            ByteBuffer value = values.get(i);
+            StockCacheService.CachedStock entry = value != null ? StockCacheHashLayout.decode(bytes(value)) : null;
+            if (entry != null) found.put(fields.get(i), entry);
+        }
+        return found;
+    }
+
+    private static ByteBuffer utf8(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
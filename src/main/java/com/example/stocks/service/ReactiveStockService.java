@@ -0,0 +1,148 @@
+package com.example.stocks.service;
+
+import com.example.stocks.domain.StockSummary;
+import com.example.stocks.repository.ReactiveStockReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * La ruta de lectura de {@link StockService} sin bloqueos, para el modo reactivo: la caché por
+ * {@link ReactiveStockCacheService} y los fallos por R2DBC ({@link ReactiveStockReader}), con el
+ * mismo single-flight por símbolo.
+ *
+ * El relleno de la caché tras un fallo reutiliza el pipeline de {@link StockCacheService#putAll(Map)}
+ * en boundedElastic y la respuesta no lo espera: ningún hilo del event loop llega a bloquearse.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveStockService {
+    private static final Logger log = LoggerFactory.getLogger(ReactiveStockService.class);
+
+    private final ReactiveStockCacheService cache;
+    private final StockCacheService cacheService;
+    private final ReactiveStockReader reader;
+    private final Scheduler backfillScheduler;
+    // Lecturas de la base de datos en curso por símbolo (ver load)
+    private final ConcurrentHashMap<String, Mono<StockSummary>> loads = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReactiveStockService(ReactiveStockCacheService cache, StockCacheService cacheService,
+                                ReactiveStockReader reader) {
+        this(cache, cacheService, reader, Schedulers.boundedElastic());
+    }
+
+    ReactiveStockService(ReactiveStockCacheService cache, StockCacheService cacheService,
+                         ReactiveStockReader reader, Scheduler backfillScheduler) {
+        this.cache = cache;
+        this.cacheService = cacheService;
+        this.reader = reader;
+        this.backfillScheduler = backfillScheduler;
+    }
+
+    public Flux<StockSummary> findPage(@Nullable String after, int limit) {
+        return reader.findSummariesBySymbolGreaterThan(after != null ? after.toUpperCase() : "", limit);
+    }
+
+    public Flux<StockSummary> findAll() {
+        return reader.findAllOrderedBySymbol();
+    }
+
+    public Mono<Long> collectionVersion() {
+        return cache.collectionVersion();
+    }
+
+    // Un acierto en caché ya trae precio y updatedAt, así que no toca la base de datos
+    public Mono<StockService.StockView> getView(String symbol) {
+        String s = symbol.toUpperCase();
+        return cache.getEntry(s)
+                .filter(entry -> entry.updatedAt() != null)
+                .map(entry -> new StockService.StockView(s, entry.price(), entry.updatedAt(), true))
+                .switchIfEmpty(Mono.defer(() -> load(s))
+                        .map(st -> new StockService.StockView(st.symbol(), st.price(), st.updatedAt(), false)));
+    }
+
+    // Single-flight: quien llega con una lectura del símbolo en curso se suscribe a la misma
+    private Mono<StockSummary> load(String symbol) {
+        return loads.computeIfAbsent(symbol, this::newLoad);
+    }
+
+    // Al terminar solo se quita a sí misma, como StockService#load: nunca una lectura posterior
+    private Mono<StockSummary> newLoad(String symbol) {
+        AtomicReference<Mono<StockSummary>> mine = new AtomicReference<>();
+        mine.set(reader.findSummaryBySymbol(symbol)
+                .doOnNext(st -> backfill(List.of(st)))
+                .doFinally(signal -> loads.remove(symbol, mine.get()))
+                .cache());
+        return mine.get();
+    }
+
+    /**
+     * Como {@link StockService#getViews(Collection)}: un MGET a la caché y una única consulta
+     * para los fallos. Mantiene el orden de la petición y omite los símbolos que no existen.
+     */
+    public Mono<List<StockService.StockView>> getViews(Collection<String> symbols) {
+        Set<String> requested = new LinkedHashSet<>();
+        symbols.forEach(symbol -> requested.add(symbol.toUpperCase()));
+        return cache.getEntries(requested).flatMap(cached -> {
+            Map<String, StockService.StockView> views = new HashMap<>();
+            List<String> misses = new ArrayList<>();
+            for (String s : requested) {
+                StockCacheService.CachedStock entry = cached.get(s);
+                if (entry != null && entry.updatedAt() != null) {
+                    views.put(s, new StockService.StockView(s, entry.price(), entry.updatedAt(), true));
+                } else {
+                    misses.add(s);
+                }
+            }
+            Mono<Map<String, StockService.StockView>> all = misses.isEmpty()
+                    ? Mono.just(views)
+                    : reader.findSummariesBySymbolIn(misses).collectList().map(rows -> {
+                        for (StockSummary st : rows) {
+                            views.put(st.symbol(), new StockService.StockView(st.symbol(), st.price(),
+                                    st.updatedAt(), false));
+                        }
+                        backfill(rows);
+                        return views;
+                    });
+            return all.map(found -> {
+                List<StockService.StockView> result = new ArrayList<>(found.size());
+                for (String s : requested) {
+                    StockService.StockView view = found.get(s);
+                    if (view != null) result.add(view);
+                }
+                return result;
+            });
+        });
+    }
+
+    private void backfill(List<StockSummary> rows) {
+        Map<String, StockCacheService.CachedStock> entries = new HashMap<>();
+        for (StockSummary st : rows) {
+            if (st.updatedAt() != null) {
+                entries.put(st.symbol(), new StockCacheService.CachedStock(st.price(), st.updatedAt()));
+            }
+        }
+        if (entries.isEmpty()) return;
+        Mono.fromRunnable(() -> cacheService.putAll(entries))
+                .subscribeOn(backfillScheduler)
+                .subscribe(null, e -> log.warn("No se pudo rellenar la caché con {} precios", entries.size(), e));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.stocks.service;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Scripts Lua enviados con EVALSHA, sobre todo en pipelines: cada entrada lleva solo el SHA1 del
+ * script y no su cuerpo entero. Si Redis no lo tiene en su caché de scripts (NOSCRIPT: primer
+ * uso, reinicio, failover o SCRIPT FLUSH), se cargan con SCRIPT LOAD y se repite la operación
+ * una vez. Redis responde NOSCRIPT a todos los EVALSHA del pipeline, así que ningún script ha
+ * escrito antes del reintento.
+ */
+final class RedisScripts {
+
+    private RedisScripts() {
+    }
+
+    static <T> T withLoaded(StringRedisTemplate redis, Supplier<T> operation, RedisScript<?>... scripts) {
+        try {
+            return operation.get();
+        } catch (DataAccessException e) {
+            if (!isNoScript(e)) throw e;
+            redis.execute((RedisCallback<Void>) connection -> {
+                for (RedisScript<?> script : scripts) {
+                    connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            return operation.get();
+        }
+    }
+
+    // Lettuce y Jedis envuelven el error de Redis (en un pipeline, dentro de RedisPipelineException)
+    static boolean isNoScript(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("NOSCRIPT")) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.stocks.service;
+
+import com.example.stocks.domain.Price;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.lang.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Disposición compacta de la caché de precios (app.cache.hash-buckets &gt; 0): en lugar de una
+ * clave string por símbolo, los símbolos se reparten en {@code buckets} hashes
+ * {@code stocks:h:<n>}, y cada campo guarda 16 bytes: updatedAt en µs y el precio en
+ * diezmilésimas, dos {@code long} big-endian. Con pocos cientos de campos por hash Redis los
+ * guarda como listpack, sin el coste fijo de una clave (y su TTL) por símbolo, y leerlos no
+ * requiere parsear texto.
+ *
+ * El TTL se aplica al hash entero y se renueva con cada escritura en él: un precio caduca
+ * cuando su bucket lleva {@code app.cache.ttl} sin escrituras, no cuando lo lleva el símbolo.
+ */
+final class StockCacheHashLayout {
+    static final String PREFIX = "stocks:h:";
+    static final int VALUE_SIZE = 2 * Long.BYTES;
+
+    // Mismo last-write-wins que la disposición string. El updatedAt se compara byte a byte como
+    // número: exacto en un double mientras quepa en 53 bits (µs hasta el año 2255).
+    static final RedisScript<Long> PUT_IF_NEWER = RedisScript.of("""
+            local current = redis.call('HGET', KEYS[1], ARGV[1])
+            if current and #current >= 8 then
+              local ts, candidate = 0, 0
+              for i = 1, 8 do
+                ts = ts * 256 + string.byte(current, i)
+                candidate = candidate * 256 + string.byte(ARGV[2], i)
+              end
+              if ts >= candidate then
+                return 0
+              end
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final int buckets;
+
+    StockCacheHashLayout(int buckets) {
+        this.buckets = buckets;
+    }
+
+    // Símbolos agrupados por la clave de su bucket, para leer cada bucket con un solo HMGET
+    Map<String, List<String>> byBucket(List<String> symbols) {
+        Map<String, List<String>> byBucket = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            byBucket.computeIfAbsent(new String(key(symbol), StandardCharsets.UTF_8), k -> new ArrayList<>())
+                    .add(symbol);
+        }
+        return byBucket;
+    }
+
+    // String.hashCode está fijado por la especificación, así que todos los pods eligen el mismo bucket
+    byte[] key(String symbol) {
+        return (PREFIX + Math.floorMod(symbol.hashCode(), buckets)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] encode(StockCacheService.CachedStock entry) {
+        return ByteBuffer.allocate(VALUE_SIZE)
+                .putLong(ChronoUnit.MICROS.between(Instant.EPOCH, entry.updatedAt()))
+                .putLong(entry.price().units())
+                .array();
+    }
+
+    @Nullable
+    static StockCacheService.CachedStock decode(@Nullable byte[] value) {
+        if (value == null || value.length != VALUE_SIZE) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        Instant updatedAt = Instant.EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS);
+        return new StockCacheService.CachedStock(Price.ofUnits(buffer.getLong()), updatedAt);
+    }
+
+    // En un pipeline el resultado (1 si se escribe, 0 si era obsoleto) llega en executePipelined.
+    // Con EVALSHA: quien llama carga el script si Redis responde NOSCRIPT (RedisScripts).
+    @Nullable
+    Long put(RedisConnection connection, String symbol, StockCacheService.CachedStock entry, String ttl) {
+        return connection.scriptingCommands().evalSha(PUT_IF_NEWER.getSha1(), ReturnType.INTEGER, 1,
+                key(symbol), symbol.getBytes(StandardCharsets.UTF_8), encode(entry),
+                ttl.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nullable
+    @SuppressWarnings("null")
+    StockCacheService.CachedStock get(StringRedisTemplate redis, String symbol) {
+        byte[] value = redis.execute((RedisCallback<byte[]>) connection ->
+                connection.hashCommands().hGet(key(symbol), symbol.getBytes(StandardCharsets.UTF_8)));
+        return decode(value);
+    }
+
+    /**
+     * Lee varios símbolos con un HMGET por bucket, todos en un único pipeline.
+     *
+     * @return las entradas encontradas, indexadas por símbolo
+     */
+    @SuppressWarnings({"null", "unchecked"})
+    Map<String, StockCacheService.CachedStock> getAll(StringRedisTemplate redis, List<String> symbols) {
+        List<Map.Entry<String, List<String>>> ordered = new ArrayList<>(byBucket(symbols).entrySet());
+        // Sin serializador de valores: los campos se devuelven como byte[] tal cual
+        List<Object> results = redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map.Entry<String, List<String>> bucket : ordered) {
+                byte[][] fields = bucket.getValue().stream()
+                        .map(s -> s.getBytes(StandardCharsets.UTF_8))
+                        .toArray(byte[][]::new);
+                connection.hashCommands().hMGet(bucket.getKey().getBytes(StandardCharsets.UTF_8), fields);
+            }
+            return null;
+        }, RedisSerializer.byteArray());
+
+        Map<String, StockCacheService.CachedStock> found = new HashMap<>();
+        for (int b = 0; b < ordered.size(); b++) {
+            List<String> fields = ordered.get(b).getValue();
+            List<byte[]> values = (List<byte[]>) results.get(b);
+            for (int i = 0; i < fields.size(); i++) {
+                StockCacheService.CachedStock entry = values != null ? decode(values.get(i)) : null;
+                if (entry != null) found.put(fields.get(i), entry);
+            }
+        }
+        return found;
+    }
+}
@@ -1,41 +1,410 @@
 package com.example.stocks.service;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import com.example.stocks.domain.Price;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Caché de precios en dos niveles: una caché local acotada (L1, Caffeine) delante de Redis (L2).
+ *
+ * Cada escritura en Redis se publica en {@link #INVALIDATION_CHANNEL} para que el resto de
+ * pods invaliden su L1; el TTL de la L1 acota la desactualización si se pierde un mensaje.
+ *
+ * Por defecto cada símbolo es una clave string {@code stock:<SYMBOL>} con el valor
+ * "micros:precio"; con app.cache.hash-buckets &gt; 0 se usa la disposición compacta en hashes
+ * de {@link StockCacheHashLayout}. Las dos no se mezclan: cambiar de una a otra empieza con la
+ * caché vacía.
+ *
+ * El TTL de cada clave en Redis lleva un jitter aleatorio de hasta {@code app.cache.ttl-jitter}:
+ * las claves escritas a la vez (al arrancar, o en un backfill de {@link #putAll(Map)}) caducan
+ * repartidas en lugar de provocar una avalancha de fallos en el mismo segundo.
+ */
 @Service
-public class StockCacheService {
+public class StockCacheService implements MessageListener {
+    public static final String INVALIDATION_CHANNEL = "stock:invalidate";
+
     private final StringRedisTemplate redis;
-    private static final String PREFIX = "stock:";
+    static final String PREFIX = "stock:";
     private static final Duration TTL = Duration.ofMinutes(10);
 
-    public StockCacheService(StringRedisTemplate redis) {
+    // El valor se guarda como "<updatedAt en µs desde epoch>:<precio>". El script solo escribe si
+    // el valor en caché no es igual o más reciente, de forma atómica y en un único round trip.
+    static final RedisScript<Long> PUT_IF_NEWER = RedisScript.of("""
+            local current = redis.call('GET', KEYS[1])
+            if current then
+              local ts = tonumber(string.match(current, '^(-?%d+):'))
+              if ts and ts >= tonumber(ARGV[1]) then
+                return 0
+              end
+            end
+            redis.call('SET', KEYS[1], ARGV[1] .. ':' .. ARGV[2], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+
+    // Versión de la colección para el ETag de GET /api/stocks. Si la clave no existe (Redis vacío)
+    // arranca en el instante actual en µs y no en 1, para no repetir versiones ya entregadas.
+    static final String VERSION_KEY = "stocks:version";
+    static final RedisScript<Long> BUMP_VERSION = RedisScript.of("""
+            local v = redis.call('INCR', KEYS[1])
+            if v == 1 then
+              redis.call('SET', KEYS[1], ARGV[1])
+              return tonumber(ARGV[1])
+            end
+            return v
+            """, Long.class);
+
+    private final String instanceId = UUID.randomUUID().toString();
+    @Nullable
+    private final Cache<String, CachedStock> local;
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Timer writes;
+    private final long ttlMillis;
+    private final long ttlJitterMillis;
+    @Nullable
+    private final StockCacheHashLayout hashLayout;
+
+    StockCacheService(StringRedisTemplate redis, MeterRegistry meterRegistry,
+            boolean localEnabled, long localMaxSize, Duration localTtl) {
+        this(redis, meterRegistry, localEnabled, localMaxSize, localTtl, TTL, Duration.ZERO, 0);
+    }
+
+    @Autowired
+    public StockCacheService(StringRedisTemplate redis,
+            MeterRegistry meterRegistry,
+            @Value("${app.cache.local.enabled:false}") boolean localEnabled,
+            @Value("${app.cache.local.max-size:10000}") long localMaxSize,
+            @Value("${app.cache.local.ttl:5s}") Duration localTtl,
+            @Value("${app.cache.ttl:10m}") Duration ttl,
+            @Value("${app.cache.ttl-jitter:1m}") Duration ttlJitter,
+            @Value("${app.cache.hash-buckets:0}") int hashBuckets) {
         this.redis = redis;
+        this.hashLayout = hashBuckets > 0 ? new StockCacheHashLayout(hashBuckets) : null;
+        this.ttlMillis = ttl.toMillis();
+        this.ttlJitterMillis = ttlJitter.toMillis();
+        this.local = localEnabled
+                ? Caffeine.newBuilder().maximumSize(localMaxSize).expireAfterWrite(localTtl).build()
+                : null;
+        this.localHits = requests(meterRegistry, "local", "hit");
+        this.localMisses = requests(meterRegistry, "local", "miss");
+        this.redisHits = requests(meterRegistry, "redis", "hit");
+        this.redisMisses = requests(meterRegistry, "redis", "miss");
+        this.writes = IngestMetrics.histogram("stocks.cache.write",
+                "Escritura condicional (script PUT_IF_NEWER) en Redis, de un precio o de un pipeline", meterRegistry);
     }
 
+    private static Counter requests(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("stocks.cache.requests")
+                .description("Lecturas de la caché de precios por nivel")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public boolean put(String symbol, BigDecimal price, Instant updatedAt) {
+        return put(symbol, Price.of(price), updatedAt);
+    }
+
+    /**
+     * Guarda el precio solo si {@code updatedAt} es más reciente que el que ya hay en caché.
+     *
+     * @return {@code true} si se ha escrito, {@code false} si el valor era obsoleto
+     */
     @SuppressWarnings("null")
-    public void put(String symbol, BigDecimal price) {
-        String key = key(symbol);
-        redis.opsForValue().set(key, price.toPlainString(), TTL);
+    public boolean put(String symbol, Price price, Instant updatedAt) {
+        String s = symbol.toUpperCase();
+        Long written = writes.record(() -> hashLayout != null
+                ? RedisScripts.withLoaded(redis, () -> redis.execute((RedisCallback<Long>) connection ->
+                        hashLayout.put(connection, s, new CachedStock(price, updatedAt), ttl())),
+                        StockCacheHashLayout.PUT_IF_NEWER)
+                : redis.execute(PUT_IF_NEWER, List.of(PREFIX + s),
+                        encodeTimestamp(updatedAt),
+                        price.toString(),
+                        ttl()));
+        if (written == null || written != 1L)
+            return false;
+        if (local != null) {
+            local.put(s, new CachedStock(price, updatedAt));
+            redis.convertAndSend(INVALIDATION_CHANNEL, instanceId + ":" + s);
+        }
+        return true;
+    }
+
+    /**
+     * Escribe varias entradas en un único pipeline, con la misma comprobación last-write-wins
+     * que {@link #put(String, Price, Instant)}. Pensado para rellenar la caché tras leer
+     * de la base de datos; no publica invalidaciones.
+     *
+     * @return número de entradas escritas
+     */
+    public int putAll(Map<String, CachedStock> entries) {
+        return putAll(entries, false, false).size();
+    }
+
+    /**
+     * Como {@link #putAll(Map)}, pero todas las entradas pasan a la L1, las haya escrito el
+     * script o no: tras reiniciar un pod Redis suele tener ya esos mismos precios y el script no
+     * escribe ninguno. En la L1 gana el más reciente de lo cargado y lo que ya hubiera. Es la
+     * precarga del arranque ({@link StockCacheWarmup}).
+     *
+     * @return número de entradas escritas en Redis
+     */
+    public int preload(Map<String, CachedStock> entries) {
+        return putAll(entries, false, true).size();
+    }
+
+    /**
+     * Como {@link #putAll(Map)}, pero publica también la invalidación de la L1 de los demás pods
+     * e incrementa {@link #collectionVersion()}, en el mismo pipeline. Es la escritura de los
+     * precios ingeridos ({@link StockCacheWriter}).
+     *
+     * @return los símbolos, en mayúsculas, que se han escrito
+     */
+    public List<String> putAllAndInvalidate(Map<String, CachedStock> entries) {
+        return putAll(entries, true, false);
+    }
+
+    @SuppressWarnings("null")
+    private List<String> putAll(Map<String, CachedStock> entries, boolean ingested, boolean preload) {
+        if (entries.isEmpty()) return List.of();
+        boolean invalidate = ingested && local != null;
+        List<Map.Entry<String, CachedStock>> ordered = new ArrayList<>(entries.entrySet());
+        List<Object> results = writes.record(() -> RedisScripts.withLoaded(redis,
+                () -> writePipeline(ordered, invalidate, ingested),
+                hashLayout != null ? StockCacheHashLayout.PUT_IF_NEWER : PUT_IF_NEWER, BUMP_VERSION));
+        int stride = invalidate ? 2 : 1;
+        List<String> written = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            String s = ordered.get(i).getKey().toUpperCase();
+            CachedStock entry = ordered.get(i).getValue();
+            if (Long.valueOf(1L).equals(results.get(i * stride))) {
+                written.add(s);
+                if (local != null && !preload) local.put(s, entry);
+            }
+            if (local != null && preload) local.asMap().merge(s, entry, StockCacheService::newer);
+        }
+        return written;
+    }
+
+    private static CachedStock newer(CachedStock current, CachedStock loaded) {
+        return current.updatedAt() != null && !current.updatedAt().isBefore(loaded.updatedAt()) ? current : loaded;
+    }
+
+    // Los scripts van con EVALSHA: el pipeline no repite su cuerpo en cada entrada
+    @SuppressWarnings("null")
+    private List<Object> writePipeline(List<Map.Entry<String, CachedStock>> ordered, boolean invalidate,
+            boolean ingested) {
+        return redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (Map.Entry<String, CachedStock> e : ordered) {
+                String s = e.getKey().toUpperCase();
+                if (hashLayout != null) {
+                    hashLayout.put(conn, s, e.getValue(), ttl());
+                } else {
+                    conn.evalSha(PUT_IF_NEWER.getSha1(), ReturnType.INTEGER, 1,
+                            PREFIX + s,
+                            encodeTimestamp(e.getValue().updatedAt()),
+                            e.getValue().price().toString(),
+                            ttl());
+                }
+                // Se invalida aunque el script no escriba: como mucho, un fallo extra en la L1 de otro pod
+                if (invalidate) conn.publish(INVALIDATION_CHANNEL, instanceId + ":" + s);
+            }
+            // Aunque ningún script escriba: el precio ya está en BD y un backfill pudo adelantarse
+            if (ingested) {
+                conn.evalSha(BUMP_VERSION.getSha1(), ReturnType.INTEGER, 1,
+                        VERSION_KEY, encodeTimestamp(Instant.now()));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Versión del conjunto de precios en Redis, compartida por todos los pods: cambia cada vez que
+     * se ingiere un lote. Sirve de ETag de colección sin consultar la base de datos.
+     *
+     * @return vacío si Redis aún no tiene versión (caché recién vaciada y sin ingestas desde entonces)
+     *         o no responde: el listado sale de Postgres y se sirve igual, sin ETag
+     */
+    public OptionalLong collectionVersion() {
+        String v;
+        try {
+            v = redis.opsForValue().get(VERSION_KEY);
+        } catch (DataAccessException e) {
+            return OptionalLong.empty();
+        }
+        if (v == null) return OptionalLong.empty();
+        try {
+            return OptionalLong.of(Long.parseLong(v));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
     }
 
     public Optional<BigDecimal> get(String symbol) {
+        return getEntry(symbol).map(entry -> entry.price().toBigDecimal());
+    }
+
+    /**
+     * Devuelve el precio y su updatedAt tal como están en caché, sin pasar por la base de datos.
+     * {@code updatedAt} es {@code null} en valores antiguos que solo guardaban el precio.
+     */
+    public Optional<CachedStock> getEntry(String symbol) {
+        String s = symbol.toUpperCase();
+        CachedStock hit = localEntry(s);
+        if (hit != null) return Optional.of(hit);
+        CachedStock entry = hashLayout != null ? hashLayout.get(redis, s) : readString(s);
+        remoteEntry(s, entry);
+        return Optional.ofNullable(entry);
+    }
+
+    @Nullable
+    @SuppressWarnings("null")
+    private CachedStock readString(String symbol) {
+        return decodeOrNull(redis.opsForValue().get(PREFIX + symbol));
+    }
+
+    /**
+     * Resuelve varios símbolos con un único MGET (o un pipeline de HMGET por bucket) para todos
+     * los que no están en la caché local.
+     *
+     * @return las entradas encontradas, indexadas por símbolo en mayúsculas
+     */
+    public Map<String, CachedStock> getEntries(Collection<String> symbols) {
+        Map<String, CachedStock> found = new HashMap<>();
+        List<String> remote = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            String s = symbol.toUpperCase();
+            CachedStock hit = localEntry(s);
+            if (hit != null) {
+                found.put(s, hit);
+            } else {
+                remote.add(s);
+            }
+        }
+        if (remote.isEmpty()) return found;
+
+        Map<String, CachedStock> fromRedis = hashLayout != null
+                ? hashLayout.getAll(redis, remote)
+                : readStrings(remote);
+        for (String s : remote) {
+            CachedStock entry = fromRedis.get(s);
+            remoteEntry(s, entry);
+            if (entry != null) found.put(s, entry);
+        }
+        return found;
+    }
+
+    private Map<String, CachedStock> readStrings(List<String> symbols) {
         @SuppressWarnings("null")
-        String v = redis.opsForValue().get(key(symbol));
-        if (v == null)
-            return Optional.empty();
+        List<String> values = redis.opsForValue().multiGet(symbols.stream().map(PREFIX::concat).toList());
+        Map<String, CachedStock> found = new HashMap<>();
+        for (int i = 0; i < symbols.size(); i++) {
+            CachedStock entry = decodeOrNull(values != null ? values.get(i) : null);
+            if (entry != null) found.put(symbols.get(i), entry);
+        }
+        return found;
+    }
+
+    // Consulta de la L1 compartida con ReactiveStockCacheService: mismos contadores en los dos modos
+    @Nullable
+    CachedStock localEntry(String symbol) {
+        if (local == null) return null;
+        CachedStock hit = local.getIfPresent(symbol);
+        (hit != null ? localHits : localMisses).increment();
+        return hit;
+    }
+
+    // Resultado de leer un símbolo en Redis: lo cuenta y, si estaba, lo guarda en la L1
+    void remoteEntry(String symbol, @Nullable CachedStock entry) {
+        if (entry == null) {
+            redisMisses.increment();
+            return;
+        }
+        redisHits.increment();
+        if (local != null) local.put(symbol, entry);
+    }
+
+    @Nullable
+    StockCacheHashLayout hashLayout() {
+        return hashLayout;
+    }
+
+    // TTL en ms para PX, con un jitter distinto en cada escritura
+    String ttl() {
+        long jitter = ttlJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(ttlJitterMillis + 1) : 0;
+        return Long.toString(ttlMillis + jitter);
+    }
+
+    static String encodeTimestamp(Instant updatedAt) {
+        return Long.toString(ChronoUnit.MICROS.between(Instant.EPOCH, updatedAt));
+    }
+
+    // Valor ausente o corrupto: se trata como fallo de caché
+    @Nullable
+    static CachedStock decodeOrNull(@Nullable String v) {
+        if (v == null) return null;
         try {
-            return Optional.of(new BigDecimal(v));
+            return decode(v);
         } catch (NumberFormatException e) {
-            return Optional.empty();
+            return null;
         }
     }
 
-    private String key(String symbol) {
-        return PREFIX + symbol.toUpperCase();
+    // El precio se parsea directamente a coma fija, sin BigDecimal ni substring intermedios
+    static CachedStock decode(String v) {
+        int sep = v.indexOf(':');
+        // Compatibilidad con valores antiguos que solo contenían el precio
+        if (sep < 0) return new CachedStock(Price.parse(v), null);
+        long micros = Long.parseLong(v, 0, sep, 10);
+        return new CachedStock(Price.parse(v, sep + 1, v.length()),
+                Instant.EPOCH.plus(micros, ChronoUnit.MICROS));
+    }
+
+    // Invalidaciones publicadas por otros pods: "<instanceId>:<SYMBOL>"
+    @Override
+    public void onMessage(Message message, @Nullable byte[] pattern) {
+        if (local == null) return;
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf(':');
+        if (sep < 0 || body.substring(0, sep).equals(instanceId)) return;
+        local.invalidate(body.substring(sep + 1));
+    }
+
+    public record CachedStock(Price price, @Nullable Instant updatedAt) {
     }
 }
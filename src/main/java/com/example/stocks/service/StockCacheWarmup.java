@@ -0,0 +1,78 @@
+package com.example.stocks.service;
+
+import com.example.stocks.domain.StockSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Carga la caché desde Postgres al arrancar (app.cache.warmup.enabled=true), para que tras un
+ * despliegue o un flush de Redis las lecturas no caigan todas en la base de datos.
+ *
+ * Recorre la tabla con el cursor de {@link StockService#forEachStock} y escribe en Redis en
+ * pipelines de chunk-size entradas, con la comprobación last-write-wins habitual: un precio que
+ * llegue por SQS durante la carga no se pisa. La L1 se llena con todo lo cargado, aunque Redis
+ * ya lo tuviera ({@link StockCacheService#preload}). Spring Boot solo pasa la aplicación a
+ * ACCEPTING_TRAFFIC cuando terminan los runners, así que /actuator/health/readiness no responde
+ * UP hasta que acaba la carga. Si falla, se registra y la aplicación arranca con la caché fría.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.cache.warmup.enabled", havingValue = "true")
+public class StockCacheWarmup implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(StockCacheWarmup.class);
+
+    private final StockService stockService;
+    private final StockCacheService cacheService;
+    private final int chunkSize;
+
+    @Autowired
+    public StockCacheWarmup(StockService stockService, StockCacheService cacheService,
+            @Value("${app.cache.warmup.chunk-size:1000}") int chunkSize) {
+        this.stockService = stockService;
+        this.cacheService = cacheService;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        int[] counts = new int[2];
+        Map<String, StockCacheService.CachedStock> chunk = new HashMap<>();
+        try {
+            stockService.forEachStock(stock -> {
+                if (stock.updatedAt() == null) return;
+                chunk.put(stock.symbol(), entry(stock));
+                if (chunk.size() >= chunkSize) flush(chunk, counts);
+            });
+            flush(chunk, counts);
+            log.info("Caché precargada: {} símbolos leídos, {} escritos en Redis en {} ms",
+                    counts[0], counts[1], (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Precarga de la caché interrumpida tras {} símbolos; se arranca con la caché fría",
+                    counts[0], e);
+        }
+    }
+
+    // counts[0]: símbolos leídos; counts[1]: escritos (no cuentan los que Redis ya tenía más nuevos)
+    private void flush(Map<String, StockCacheService.CachedStock> chunk, int[] counts) {
+        if (chunk.isEmpty()) return;
+        counts[0] += chunk.size();
+        counts[1] += cacheService.preload(Map.copyOf(chunk));
+        chunk.clear();
+    }
+
+    private static StockCacheService.CachedStock entry(StockSummary stock) {
+        return new StockCacheService.CachedStock(stock.price(), stock.updatedAt());
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.stocks.service;
+
+import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.StockTick;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lleva a Redis los precios que {@link StockService} ya ha confirmado en la base de datos.
+ *
+ * Las escrituras se registran para después del commit, así que la transacción no espera a Redis
+ * y la caché nunca va por delante de la base de datos: si el commit falla, no llegan a encolarse.
+ * Con app.cache.write-behind.enabled=true se acumulan en una cola por pod, con solo el precio más
+ * reciente de cada símbolo, que un hilo vacía en pipelines cada flush-interval o al llegar a
+ * max-batch símbolos. Al escribir, se difunden los precios que han avanzado la caché
+ * ({@link StockPriceStream}).
+ *
+ * Si Redis falla, el lote vuelve a la cola y los flushes se espacian con un backoff exponencial,
+ * desde flush-interval hasta max-backoff, hasta que una escritura sale bien. La traza completa
+ * solo se registra en el primer fallo; mientras dure la caída, una línea por minuto.
+ */
+@Component
+public class StockCacheWriter {
+    private static final Logger log = LoggerFactory.getLogger(StockCacheWriter.class);
+    private static final Duration FAILURE_LOG_INTERVAL = Duration.ofMinutes(1);
+
+    private final StockCacheService cacheService;
+    @Nullable
+    private final StockPriceStream priceStream;
+    private final IngestMetrics metrics;
+    private final int maxBatch;
+    private final ConcurrentMap<String, StockCacheService.CachedStock> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    @Nullable
+    private final ScheduledExecutorService flusher;
+    private final Counter failures;
+    private final Duration flushInterval;
+    private final Duration maxBackoff;
+    private final Clock clock;
+    // Solo los toca el hilo del flusher (y close(), cuando ya se ha parado)
+    private int consecutiveFailures;
+    private Instant retryAt = Instant.MIN;
+    private Instant nextFailureLog = Instant.MIN;
+
+    @Autowired
+    public StockCacheWriter(StockCacheService cacheService,
+            @Nullable StockPriceStream priceStream,
+            IngestMetrics metrics,
+            MeterRegistry meterRegistry,
+            @Value("${app.cache.write-behind.enabled:true}") boolean writeBehind,
+            @Value("${app.cache.write-behind.max-batch:500}") int maxBatch,
+            @Value("${app.cache.write-behind.flush-interval:10ms}") Duration flushInterval,
+            @Value("${app.cache.write-behind.max-backoff:1s}") Duration maxBackoff) {
+        this(cacheService, priceStream, metrics, meterRegistry,
+                writeBehind, maxBatch, flushInterval, maxBackoff, Clock.systemUTC());
+    }
+
+    StockCacheWriter(StockCacheService cacheService, @Nullable StockPriceStream priceStream,
+            IngestMetrics metrics, MeterRegistry meterRegistry,
+            boolean writeBehind, int maxBatch, Duration flushInterval, Duration maxBackoff, Clock clock) {
+        this.cacheService = cacheService;
+        this.priceStream = priceStream;
+        this.metrics = metrics;
+        this.maxBatch = maxBatch;
+        this.flushInterval = flushInterval;
+        this.maxBackoff = maxBackoff;
+        this.clock = clock;
+        Gauge.builder("stocks.cache.write-behind.pending", pending, Map::size)
+                .description("Símbolos confirmados en BD pendientes de escribir en Redis")
+                .register(meterRegistry);
+        this.failures = Counter.builder("stocks.cache.write-behind.failures")
+                .description("Lotes que no se han podido escribir en Redis y han vuelto a la cola")
+                .register(meterRegistry);
+        if (writeBehind && !flushInterval.isZero()) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(
+                    r -> Thread.ofPlatform().name("stock-cache-writer").daemon().unstarted(r));
+            this.flusher.scheduleWithFixedDelay(this::flush,
+                    flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Escribe en caché las filas que ha guardado la transacción en curso cuando haga commit.
+     * Fuera de una transacción se escriben ya.
+     */
+    public void writeAfterCommit(Collection<Stock> written) {
+        if (written.isEmpty()) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(written);
+                }
+            });
+        } else {
+            submit(written);
+        }
+    }
+
+    private void submit(Collection<Stock> written) {
+        if (flusher == null) {
+            Map<String, StockCacheService.CachedStock> entries = new HashMap<>();
+            written.forEach(st -> merge(entries, st.getSymbol(), entry(st)));
+            write(entries);
+            return;
+        }
+        written.forEach(st -> merge(pending, st.getSymbol(), entry(st)));
+        if (pending.size() >= maxBatch && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    void flush() {
+        if (pending.isEmpty() || clock.instant().isBefore(retryAt)) return;
+        Map<String, StockCacheService.CachedStock> batch = new HashMap<>();
+        for (String symbol : pending.keySet()) {
+            StockCacheService.CachedStock entry = pending.remove(symbol);
+            if (entry != null) batch.put(symbol, entry);
+            if (batch.size() == maxBatch) {
+                // Si Redis falla, el resto se queda en la cola hasta el siguiente intento
+                if (!writeOrRequeue(batch)) return;
+                batch = new HashMap<>();
+            }
+        }
+        writeOrRequeue(batch);
+    }
+
+    // Si Redis falla se devuelven a la cola; un precio más reciente que haya llegado mientras tanto gana
+    private boolean writeOrRequeue(Map<String, StockCacheService.CachedStock> batch) {
+        if (batch.isEmpty()) return true;
+        try {
+            write(batch);
+        } catch (RuntimeException e) {
+            batch.forEach((symbol, entry) -> merge(pending, symbol, entry));
+            failed(batch.size(), e);
+            return false;
+        }
+        if (consecutiveFailures > 0) {
+            log.info("Redis vuelve a aceptar escrituras tras {} intentos fallidos", consecutiveFailures);
+            consecutiveFailures = 0;
+            retryAt = Instant.MIN;
+            nextFailureLog = Instant.MIN;
+        }
+        return true;
+    }
+
+    private void failed(int size, RuntimeException e) {
+        failures.increment();
+        consecutiveFailures++;
+        Instant now = clock.instant();
+        Duration backoff = backoff(consecutiveFailures);
+        retryAt = now.plus(backoff);
+        if (consecutiveFailures == 1) {
+            log.warn("Fallo al escribir {} precios en Redis, se reintentarán en {} ms", size, backoff.toMillis(), e);
+        } else if (!now.isBefore(nextFailureLog)) {
+            log.warn("Redis sigue sin aceptar escrituras: {} intentos fallidos, {} símbolos en cola ({})",
+                    consecutiveFailures, pending.size(), e.toString());
+        } else {
+            return;
+        }
+        nextFailureLog = now.plus(FAILURE_LOG_INTERVAL);
+    }
+
+    // flush-interval, el doble tras cada fallo seguido, hasta max-backoff
+    private Duration backoff(int failures) {
+        Duration backoff = flushInterval.multipliedBy(1L << Math.min(failures - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private void write(Map<String, StockCacheService.CachedStock> entries) {
+        List<String> written = cacheService.putAllAndInvalidate(entries);
+        // Solo se difunden los precios que han avanzado la caché, nunca uno obsoleto
+        List<StockTick> published = new ArrayList<>(written.size());
+        for (String symbol : written) {
+            StockCacheService.CachedStock entry = entries.get(symbol);
+            metrics.visible(entry.updatedAt());
+            published.add(new StockTick(symbol, entry.price(), entry.updatedAt()));
+        }
+        for (int i = written.size(); i < entries.size(); i++) {
+            metrics.staleInCache();
+        }
+        if (priceStream != null && !published.isEmpty()) priceStream.publishAll(published);
+    }
+
+    private static StockCacheService.CachedStock entry(Stock stock) {
+        return new StockCacheService.CachedStock(stock.getFixedPrice(), stock.getUpdatedAt());
+    }
+
+    private static void merge(Map<String, StockCacheService.CachedStock> into, String symbol,
+            StockCacheService.CachedStock entry) {
+        into.merge(symbol, entry, (current, update) ->
+                update.updatedAt().isBefore(current.updatedAt()) ? current : update);
+    }
+
+    @PreDestroy
+    void close() throws InterruptedException {
+        if (flusher == null) return;
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        // Un último intento aunque haya un backoff en curso
+        retryAt = Instant.MIN;
+        flush();
+    }
+}
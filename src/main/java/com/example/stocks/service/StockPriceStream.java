@@ -0,0 +1,217 @@
+package com.example.stocks.service;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.StockTick;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Difusión de precios en tiempo real a suscriptores filtrados por símbolo
+ * (app.stream.enabled, activo por defecto).
+ *
+ * {@link StockService} publica en {@link #CHANNEL} cada precio que ha avanzado la caché, y
+ * todos los pods (también el que escribe) lo reciben por pub/sub y lo entregan a sus
+ * suscriptores locales. Cada suscriptor guarda como mucho un precio pendiente por símbolo:
+ * si el cliente va lento, los precios intermedios se sustituyen por el último en lugar de
+ * acumularse. Los envíos se hacen en hilos virtuales, uno activo como mucho por suscriptor,
+ * así que un cliente bloqueado no retiene ni al listener de Redis ni al resto.
+ */
+@Service
+@ConditionalOnProperty(name = "app.stream.enabled", havingValue = "true", matchIfMissing = true)
+public class StockPriceStream implements MessageListener {
+    public static final String CHANNEL = "stock:prices";
+    private static final Logger log = LoggerFactory.getLogger(StockPriceStream.class);
+
+    private final StringRedisTemplate redis;
+    private final int maxSubscribers;
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentMap<String, Set<Subscription>> bySymbol = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter delivered;
+    private final Counter conflated;
+
+    @Autowired
+    public StockPriceStream(StringRedisTemplate redis,
+            MeterRegistry meterRegistry,
+            @Value("${app.stream.max-subscribers:10000}") int maxSubscribers) {
+        this.redis = redis;
+        this.maxSubscribers = maxSubscribers;
+        this.delivered = Counter.builder("stocks.stream.delivered")
+                .description("Precios enviados a suscriptores")
+                .register(meterRegistry);
+        this.conflated = Counter.builder("stocks.stream.conflated")
+                .description("Precios sustituidos por uno más reciente antes de enviarse")
+                .register(meterRegistry);
+        Gauge.builder("stocks.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Suscriptores conectados a este pod")
+                .register(meterRegistry);
+    }
+
+    // Destino de los precios de un suscriptor; un IOException cierra la suscripción
+    @FunctionalInterface
+    public interface Sink {
+        void send(StockTick tick) throws IOException;
+    }
+
+    /**
+     * Registra un suscriptor para los símbolos indicados.
+     *
+     * @return la suscripción, o {@code null} si el pod ya tiene max-subscribers
+     */
+    @Nullable
+    public Subscription subscribe(Collection<String> symbols, Sink sink) {
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            return null;
+        }
+        Subscription subscription = new Subscription(symbols.stream().map(String::toUpperCase).toList(), sink);
+        for (String symbol : subscription.symbols) {
+            // compute, no computeIfAbsent + add: close() puede retirar el conjunto vacío a la vez
+            bySymbol.compute(symbol, (k, set) -> {
+                Set<Subscription> target = set != null ? set : ConcurrentHashMap.newKeySet();
+                target.add(subscription);
+                return target;
+            });
+        }
+        return subscription;
+    }
+
+    // Publica en un único pipeline los precios que acaban de escribirse
+    @SuppressWarnings("null")
+    public void publishAll(Collection<StockTick> ticks) {
+        if (ticks.isEmpty()) return;
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            for (StockTick tick : ticks) {
+                conn.publish(CHANNEL, encode(tick));
+            }
+            return null;
+        });
+    }
+
+    // "<SYMBOL>:<updatedAt en µs desde epoch>:<precio>"
+    static String encode(StockTick tick) {
+        StringBuilder sb = new StringBuilder(48).append(tick.symbol()).append(':')
+                .append(ChronoUnit.MICROS.between(Instant.EPOCH, tick.updatedAt())).append(':');
+        return tick.price().appendTo(sb).toString();
+    }
+
+    @Override
+    public void onMessage(Message message, @Nullable byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int first = body.indexOf(':');
+        int second = body.indexOf(':', first + 1);
+        if (first < 0 || second < 0) return;
+        Set<Subscription> targets = bySymbol.get(body.substring(0, first));
+        if (targets == null || targets.isEmpty()) return;
+        StockTick tick;
+        try {
+            tick = new StockTick(body.substring(0, first),
+                    Price.parse(body, second + 1, body.length()),
+                    Instant.EPOCH.plus(Long.parseLong(body, first + 1, second, 10), ChronoUnit.MICROS));
+        } catch (NumberFormatException e) {
+            log.warn("Precio publicado con formato inválido: {}", body);
+            return;
+        }
+        for (Subscription subscription : targets) {
+            subscription.offer(tick);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+    }
+
+    public final class Subscription implements AutoCloseable {
+        private final List<String> symbols;
+        private final Sink sink;
+        // Un precio pendiente por símbolo: el buffer está acotado por el número de símbolos
+        private final Map<String, StockTick> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscription(List<String> symbols, Sink sink) {
+            this.symbols = symbols;
+            this.sink = sink;
+        }
+
+        void offer(StockTick tick) {
+            if (closed.get()) return;
+            StockTick previous = pending.put(tick.symbol(), tick);
+            if (previous != null) conflated.increment();
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    Iterator<String> keys = pending.keySet().iterator();
+                    while (keys.hasNext() && !closed.get()) {
+                        StockTick tick = pending.remove(keys.next());
+                        if (tick == null) continue;
+                        sink.send(tick);
+                        delivered.increment();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Suscriptor desconectado: {}", e.getMessage());
+                    close();
+                    return;
+                } finally {
+                    draining.set(false);
+                }
+                // Un precio que llegó mientras se terminaba de enviar no debe quedarse esperando
+            } while (!pending.isEmpty() && !closed.get() && draining.compareAndSet(false, true));
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            for (String symbol : symbols) {
+                bySymbol.computeIfPresent(symbol, (k, set) -> {
+                    set.remove(this);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+            pending.clear();
+            subscribers.decrementAndGet();
+        }
+    }
+}
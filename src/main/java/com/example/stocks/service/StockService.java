@@ -1,55 +1,197 @@
 package com.example.stocks.service;
 
+import com.example.stocks.domain.Price;
 import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.StockSummary;
+import com.example.stocks.domain.StockTick;
 import com.example.stocks.repository.StockRepository;
+import com.example.stocks.repository.StockTickRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @Service
 public class StockService {
+    static final int STREAM_FETCH_SIZE = 500;
+
     private final StockRepository repository;
+    private final StockTickRepository tickRepository;
     private final StockCacheService cacheService;
+    private final StockCacheWriter cacheWriter;
+    private final IngestMetrics metrics;
+    // Lecturas de la base de datos en curso por símbolo (ver load)
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<StockSummary>>> loads =
+            new ConcurrentHashMap<>();
 
-    public StockService(StockRepository repository, StockCacheService cacheService) {
+    @Autowired
+    public StockService(StockRepository repository, StockTickRepository tickRepository,
+                        StockCacheService cacheService, StockCacheWriter cacheWriter,
+                        IngestMetrics metrics) {
         this.repository = repository;
+        this.tickRepository = tickRepository;
         this.cacheService = cacheService;
+        this.cacheWriter = cacheWriter;
+        this.metrics = metrics;
+    }
+
+    // Página de hasta {@code limit} stocks con símbolo posterior a {@code after}
+    public List<StockSummary> findPage(@Nullable String after, int limit) {
+        String cursor = after != null ? after.toUpperCase() : "";
+        return repository.findSummariesBySymbolGreaterThanOrderBySymbolAsc(cursor, Limit.of(limit));
     }
 
-    public List<Stock> findAll() {
-        return repository.findAll();
+    // Cambia con cada lote ingerido; vacía si la caché no puede darla (el llamante consulta sin ETag)
+    public OptionalLong collectionVersion() {
+        return cacheService.collectionVersion();
     }
 
+    // Entrega todos los stocks uno a uno sin materializar la lista completa
+    @Transactional(readOnly = true)
+    public void forEachStock(Consumer<StockSummary> action) {
+        repository.forEachOrderedBySymbol(STREAM_FETCH_SIZE, action);
+    }
+
+    // Un acierto en caché ya trae precio y updatedAt, así que no toca la base de datos
     public Optional<StockView> getView(String symbol) {
         String s = symbol.toUpperCase();
-        Optional<BigDecimal> cached = cacheService.get(s);
-        return cached
-                .map(bigDecimal -> repository.findBySymbol(s)
-                        .map(st -> new StockView(st.getSymbol(), bigDecimal, st.getUpdatedAt(), true)))
-                .orElseGet(() -> repository.findBySymbol(s)
-                        .map(st -> new StockView(st.getSymbol(), st.getPrice(), st.getUpdatedAt(), false)));
+        Optional<StockCacheService.CachedStock> cached = cacheService.getEntry(s);
+        if (cached.isPresent() && cached.get().updatedAt() != null) {
+            return Optional.of(new StockView(s, cached.get().price(), cached.get().updatedAt(), true));
+        }
+        return load(s).map(st -> new StockView(st.symbol(), st.price(), st.updatedAt(), false));
+    }
+
+    /**
+     * Lee un símbolo de la base de datos con una sola consulta en vuelo por símbolo (single-flight):
+     * si la clave caduca con muchas peticiones concurrentes, la primera consulta y rellena la caché
+     * y las demás esperan su resultado en lugar de lanzar cada una la misma consulta.
+     */
+    private Optional<StockSummary> load(String symbol) {
+        CompletableFuture<Optional<StockSummary>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<StockSummary>> running = loads.putIfAbsent(symbol, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+        try {
+            Optional<StockSummary> found = repository.findSummaryBySymbol(symbol);
+            mine.complete(found);
+            found.filter(st -> st.updatedAt() != null).ifPresent(st -> cacheService.putAll(
+                    Map.of(st.symbol(), new StockCacheService.CachedStock(st.price(), st.updatedAt()))));
+            return found;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(symbol, mine);
+        }
+    }
+
+    /**
+     * Resuelve muchos símbolos con un round trip por nivel: un MGET a la caché, una única
+     * consulta IN para los fallos y un pipeline para rellenar la caché con lo leído.
+     * Mantiene el orden de la petición y omite los símbolos que no existen.
+     */
+    public List<StockView> getViews(Collection<String> symbols) {
+        Set<String> requested = new LinkedHashSet<>();
+        symbols.forEach(symbol -> requested.add(symbol.toUpperCase()));
+        Map<String, StockCacheService.CachedStock> cached = cacheService.getEntries(requested);
+
+        Map<String, StockView> views = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String s : requested) {
+            StockCacheService.CachedStock entry = cached.get(s);
+            if (entry != null && entry.updatedAt() != null) {
+                views.put(s, new StockView(s, entry.price(), entry.updatedAt(), true));
+            } else {
+                misses.add(s);
+            }
+        }
+        if (!misses.isEmpty()) {
+            Map<String, StockCacheService.CachedStock> backfill = new HashMap<>();
+            for (StockSummary st : repository.findSummariesBySymbolIn(misses)) {
+                views.put(st.symbol(), new StockView(st.symbol(), st.price(), st.updatedAt(), false));
+                if (st.updatedAt() != null) {
+                    backfill.put(st.symbol(), new StockCacheService.CachedStock(st.price(), st.updatedAt()));
+                }
+            }
+            cacheService.putAll(backfill);
+        }
+
+        List<StockView> result = new ArrayList<>(views.size());
+        for (String s : requested) {
+            StockView view = views.get(s);
+            if (view != null) result.add(view);
+        }
+        return result;
     }
 
     @Transactional
-    public Stock upsertFromMessage(String symbol, BigDecimal price, Instant updatedAt) {
-        String s = symbol.toUpperCase();
-        Stock stock = repository.findBySymbol(s)
-                .map(existing -> {
-                    existing.setPrice(price);
-                    existing.setUpdatedAt(updatedAt);
-                    return existing;
-                })
-                .orElseGet(() -> new Stock(s, price, updatedAt));
-        Stock saved = repository.save(stock);
-        cacheService.put(s, price);
-        return saved;
-    }
-
-    public record StockView(String symbol, BigDecimal price, Instant updatedAt,
+    public Stock upsertFromMessage(String symbol, Price price, Instant updatedAt) {
+        Stock stock = new Stock(symbol.toUpperCase(), price, updatedAt);
+        upsertAll(List.of(stock));
+        return stock;
+    }
+
+    // Aplica un lote de actualizaciones con un único INSERT ... ON CONFLICT por cada bloque,
+    // en una sola transacción: si una falla, no se confirma ninguna. Todas se añaden al
+    // histórico, pero las obsoletas (updatedAt anterior al guardado) no cambian el precio
+    // actual ni llegan a la caché, que se actualiza después del commit (StockCacheWriter).
+    @Transactional
+    public List<Stock> upsertAll(Collection<Stock> updates) {
+        recordWriteOnCompletion(System.nanoTime());
+        List<Stock> normalized = new ArrayList<>(updates.size());
+        for (Stock update : updates) {
+            normalized.add(new Stock(update.getSymbol().toUpperCase(), update.getFixedPrice(), update.getUpdatedAt()));
+        }
+        tickRepository.appendAll(normalized);
+        List<Stock> written = repository.upsertAll(normalized);
+        metrics.staleInDb(normalized.size() - written.size());
+        cacheWriter.writeAfterCommit(written);
+        return written;
+    }
+
+    // El tiempo se mide hasta que termina la transacción, así que incluye el commit.
+    // IngestBackPressure lo usa como señal para frenar el consumo de SQS.
+    private void recordWriteOnCompletion(long start) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    metrics.written(System.nanoTime() - start);
+                }
+            });
+        }
+    }
+
+    // Ticks de [from, to) en orden cronológico, como mucho {@code limit}
+    public List<StockTick> getHistory(String symbol, Instant from, Instant to, int limit) {
+        return tickRepository.findBySymbolBetween(symbol.toUpperCase(), from, to, limit);
+    }
+
+    public record StockView(String symbol, Price price, Instant updatedAt,
                             boolean fromCache) {
     }
 }
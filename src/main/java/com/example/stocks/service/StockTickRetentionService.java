@@ -0,0 +1,42 @@
+package com.example.stocks.service;
+
+import com.example.stocks.repository.StockTickRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Mantiene las particiones diarias de stock_ticks: crea por adelantado las de los próximos
+ * días y elimina las que quedan fuera de la retención. Es idempotente, así que se ejecuta al
+ * arrancar (antes de que los listeners SQS empiecen a consumir) y después cada hora.
+ */
+@Service
+public class StockTickRetentionService {
+    private final DailyPartitionRetention retention;
+
+    @Autowired
+    public StockTickRetentionService(StockTickRepository repository,
+            @Value("${app.history.retention:7d}") Duration retention,
+            @Value("${app.history.precreate-days:2}") int precreateDays) {
+        this(repository, retention, precreateDays, Clock.systemUTC());
+    }
+
+    StockTickRetentionService(StockTickRepository repository, Duration retention, int precreateDays, Clock clock) {
+        this.retention = new DailyPartitionRetention("Histórico de ticks", repository, retention, precreateDays, clock);
+    }
+
+    @PostConstruct
+    void init() {
+        retention.init();
+    }
+
+    @Scheduled(cron = "${app.history.maintenance-cron:0 5 * * * *}", zone = "UTC")
+    public void maintain() {
+        retention.maintain();
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.stocks.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.StockSummary;
+import com.example.stocks.domain.StockTick;
+import com.example.stocks.service.CandleService;
+import com.example.stocks.service.ReactiveStockService;
+import com.example.stocks.service.StockPriceStream;
+import com.example.stocks.service.StockService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveStockControllerTest {
+
+    @Mock
+    private ReactiveStockService service;
+
+    @Mock
+    private StockService blockingService;
+
+    @Mock
+    private CandleService candleService;
+
+    @Mock
+    private StockPriceStream priceStream;
+
+    private ReactiveStockController controller;
+
+    @BeforeEach
+    void setUp() {
+        controller = new ReactiveStockController(service, blockingService, candleService, priceStream,
+                Duration.ofMinutes(30));
+    }
+
+    @Test
+    void list_returnsPageWithCollectionEtagAndNextCursor() {
+        // Given
+        when(service.collectionVersion()).thenReturn(Mono.just(43L));
+        when(service.findPage(null, 2)).thenReturn(Flux.just(
+                new StockSummary("AAPL", Price.parse("195.00"), Instant.now()),
+                new StockSummary("MSFT", Price.parse("400.00"), Instant.now())));
+
+        // When
+        ResponseEntity<List<StockSummary>> response = controller.list(null, 2, exchange(null)).block();
+
+        // Then
+        assertThat(response.getBody()).hasSize(2);
+        assertThat(response.getHeaders().getETag()).isEqualTo(StockController.etag(43));
+        assertThat(response.getHeaders().getFirst(StockController.NEXT_CURSOR_HEADER)).isEqualTo("MSFT");
+    }
+
+    @Test
+    void list_returnsNotModifiedWithoutQuerying_whenCollectionVersionMatches() {
+        // Given
+        when(service.collectionVersion()).thenReturn(Mono.just(42L));
+
+        // When
+        ResponseEntity<List<StockSummary>> response = controller.list(null, 100,
+                exchange(StockController.etag(42))).block();
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        verify(service, never()).findPage(any(), anyInt());
+    }
+
+    @Test
+    void list_servesPageWithoutEtag_whenCacheHasNoVersion() {
+        // Given
+        when(service.collectionVersion()).thenReturn(Mono.empty());
+        when(service.findPage(null, 100)).thenReturn(Flux.empty());
+
+        // When
+        ResponseEntity<List<StockSummary>> response = controller.list(null, 100, exchange(null)).block();
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isNull();
+    }
+
+    @Test
+    void list_returnsBadRequest_whenLimitOutOfRange() {
+        // When
+        ResponseEntity<List<StockSummary>> response = controller.list(null, 0, exchange(null)).block();
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void get_setsEtagAndLastModifiedFromUpdatedAt() {
+        // Given
+        Instant at = Instant.parse("2025-01-01T12:00:00.123456Z");
+        when(service.getView("AAPL"))
+                .thenReturn(Mono.just(new StockService.StockView("AAPL", Price.parse("195.00"), at, true)));
+
+        // When
+        ResponseEntity<StockService.StockView> response = controller.get("AAPL", exchange(null)).block();
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo(StockController.etag(at));
+        assertThat(response.getHeaders().getLastModified()).isEqualTo(at.toEpochMilli() / 1000 * 1000);
+    }
+
+    @Test
+    void get_returnsNotModified_whenEtagMatches() {
+        // Given
+        Instant at = Instant.parse("2025-01-01T12:00:00Z");
+        when(service.getView("AAPL"))
+                .thenReturn(Mono.just(new StockService.StockView("AAPL", Price.parse("195.00"), at, true)));
+
+        // When
+        ResponseEntity<StockService.StockView> response = controller.get("AAPL",
+                exchange(StockController.etag(at))).block();
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    void get_ignoresIfModifiedSince_becausePricesChangeWithinASecond() {
+        // Given
+        Instant at = Instant.parse("2025-01-01T12:00:00.500Z");
+        when(service.getView("AAPL"))
+                .thenReturn(Mono.just(new StockService.StockView("AAPL", Price.parse("195.00"), at, true)));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/stocks/AAPL")
+                .ifModifiedSince(Instant.parse("2025-01-01T12:00:00Z").toEpochMilli()));
+
+        // When
+        ResponseEntity<StockService.StockView> response = controller.get("AAPL", exchange).block();
+
+        // Then - con resolución de segundos sería un 304 con el precio anterior
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().price()).isEqualTo(Price.parse("195.00"));
+    }
+
+    @Test
+    void get_returnsNotFound_whenStockNotExists() {
+        // Given
+        when(service.getView("NOPE")).thenReturn(Mono.empty());
+
+        // When
+        ResponseEntity<StockService.StockView> response = controller.get("NOPE", exchange(null)).block();
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void quotes_returnsBadRequest_whenTooManySymbols() {
+        // Given
+        List<String> symbols = Collections.nCopies(StockController.MAX_QUOTE_SYMBOLS + 1, "AAPL");
+
+        // When
+        ResponseEntity<List<StockService.StockView>> response = controller.quotes(symbols).block();
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verify(service, never()).getViews(any());
+    }
+
+    @Test
+    void history_readsTicksFromBlockingServiceOffEventLoop() {
+        // Given
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+        StockTick tick = new StockTick("AAPL", Price.parse("195.00"), from.plusSeconds(60));
+        when(blockingService.getHistory("AAPL", from, to, 10)).thenReturn(List.of(tick));
+
+        // When
+        ResponseEntity<List<StockTick>> response = controller.history("AAPL", from, to, 10).block();
+
+        // Then
+        assertThat(response.getBody()).containsExactly(tick);
+    }
+
+    @Test
+    void stream_forwardsTicksAsPriceEventsOnDemand() throws Exception {
+        // Given
+        ArgumentCaptor<StockPriceStream.Sink> sink = ArgumentCaptor.forClass(StockPriceStream.Sink.class);
+        StockPriceStream.Subscription subscription = mock(StockPriceStream.Subscription.class);
+        when(priceStream.subscribe(eq(List.of("AAPL")), sink.capture())).thenReturn(subscription);
+        StockTick tick = new StockTick("AAPL", Price.parse("195.00"), Instant.now());
+
+        // When
+        Flux<ServerSentEvent<StockTick>> events = controller.stream(List.of("AAPL")).getBody();
+
+        // Then - el cancel tras el primer evento cierra la suscripción
+        StepVerifier.create(events, 1)
+                .then(() -> send(sink.getValue(), tick))
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("price");
+                    assertThat(event.data()).isEqualTo(tick);
+                })
+                .thenCancel()
+                .verify();
+        verify(subscription).close();
+    }
+
+    @Test
+    void stream_subscribesOnlyWhenBodyIsSubscribed() {
+        // When - el cliente se va antes de que se escriba el cuerpo
+        ResponseEntity<Flux<ServerSentEvent<StockTick>>> response = controller.stream(List.of("AAPL"));
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(priceStream, never()).subscribe(any(), any());
+    }
+
+    @Test
+    void stream_failsWithServiceUnavailable_whenSubscriberLimitIsReached() {
+        // Given
+        when(priceStream.subscribe(eq(List.of("AAPL")), any())).thenReturn(null);
+
+        // When / Then
+        StepVerifier.create(controller.stream(List.of("AAPL")).getBody())
+                .expectErrorSatisfies(e -> assertThat(e).isInstanceOfSatisfying(ResponseStatusException.class,
+                        status -> assertThat(status.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)))
+                .verify();
+    }
+
+    private static void send(StockPriceStream.Sink sink, StockTick tick) {
+        try {
+            sink.send(tick);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MockServerWebExchange exchange(String ifNoneMatch) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/stocks");
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        return MockServerWebExchange.from(request);
+    }
+}
@@ -1,23 +1,54 @@
 package com.example.stocks.api;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-import java.math.BigDecimal;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.Candle;
+import com.example.stocks.domain.CandleInterval;
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.StockSummary;
+import com.example.stocks.domain.StockTick;
+import com.example.stocks.service.CandleService;
+import com.example.stocks.service.StockPriceStream;
 import com.example.stocks.service.StockService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @ExtendWith(MockitoExtension.class)
 class StockControllerTest {
@@ -25,26 +56,112 @@ class StockControllerTest {
     @Mock
     private StockService stockService;
 
+    @Mock
+    private CandleService candleService;
+
+    @Mock
+    private StockPriceStream priceStream;
+
     private StockController controller;
 
     @BeforeEach
     void setUp() {
-        controller = new StockController(stockService);
+        controller = new StockController(stockService, new ObjectMapper().findAndRegisterModules(), candleService,
+                priceStream, Duration.ofMinutes(30));
+    }
+
+    @Test
+    void list_returnsPageWithNextCursor_whenPageIsFull() {
+        // Given
+        List<StockSummary> stocks = List.of(
+                new StockSummary("AAPL", Price.parse("195.00"), Instant.now()),
+                new StockSummary("MSFT", Price.parse("400.00"), Instant.now()));
+        when(stockService.findPage(null, 2)).thenReturn(stocks);
+
+        // When
+        ResponseEntity<List<StockSummary>> response = controller.list(null, 2, request());
+
+        // Then
+        assertThat(response.getBody()).hasSize(2);
+        assertThat(response.getHeaders().getFirst(StockController.NEXT_CURSOR_HEADER)).isEqualTo("MSFT");
+    }
+
+    @Test
+    void list_omitsNextCursor_onLastPage() {
+        // Given
+        when(stockService.findPage("MSFT", 100))
+                .thenReturn(List.of(new StockSummary("NVDA", Price.parse("450.00"), Instant.now())));
+
+        // When
+        ResponseEntity<List<StockSummary>> response = controller.list("MSFT", 100, request());
+
+        // Then
+        assertThat(response.getBody()).hasSize(1);
+        assertThat(response.getHeaders().containsKey(StockController.NEXT_CURSOR_HEADER)).isFalse();
+    }
+
+    @Test
+    void list_returnsBadRequest_whenLimitOutOfRange() {
+        // When
+        ResponseEntity<List<StockSummary>> response = controller.list(null, StockController.MAX_PAGE_SIZE + 1, request());
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(stockService);
+    }
+
+    @Test
+    void list_returnsNotModifiedWithoutQuerying_whenCollectionVersionMatches() {
+        // Given
+        when(stockService.collectionVersion()).thenReturn(OptionalLong.of(42));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/stocks");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, StockController.etag(42));
+
+        // When
+        ResponseEntity<List<StockSummary>> response = controller.list(null, 100, request(request));
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        verify(stockService, never()).findPage(any(), anyInt());
+    }
+
+    @Test
+    void list_returnsPageWithCollectionEtag_whenVersionChanged() {
+        // Given
+        when(stockService.collectionVersion()).thenReturn(OptionalLong.of(43));
+        when(stockService.findPage(null, 100)).thenReturn(List.of());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/stocks");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, StockController.etag(42));
+
+        // When
+        ResponseEntity<List<StockSummary>> response = controller.list(null, 100, request(request));
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo(StockController.etag(43));
     }
 
     @Test
-    void list_returnsAllStocks() {
+    void export_writesOneJsonObjectPerLine() throws Exception {
         // Given
-        List<Stock> stocks = List.of(
-                new Stock("AAPL", new BigDecimal("195.00"), Instant.now()),
-                new Stock("MSFT", new BigDecimal("400.00"), Instant.now()));
-        when(stockService.findAll()).thenReturn(stocks);
+        doAnswer(inv -> {
+            Consumer<StockSummary> action = inv.getArgument(0);
+            action.accept(new StockSummary("AAPL", Price.parse("195.00"), Instant.parse("2025-01-01T12:00:00Z")));
+            action.accept(new StockSummary("MSFT", Price.parse("400.00"), Instant.parse("2025-01-01T12:00:00Z")));
+            return null;
+        }).when(stockService).forEachStock(any());
 
         // When
-        List<Stock> result = controller.list();
+        ResponseEntity<StreamingResponseBody> response = controller.export();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
 
         // Then
-        assertThat(result).hasSize(2);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(out.toString(StandardCharsets.UTF_8).lines().toList())
+                .hasSize(2)
+                .allMatch(line -> line.startsWith("{") && line.endsWith("}"))
+                .anyMatch(line -> line.contains("\"symbol\":\"MSFT\""));
     }
 
     @Test
@@ -52,11 +169,11 @@ class StockControllerTest {
         // Given
         String symbol = "AAPL";
         StockService.StockView view = new StockService.StockView(
-                symbol, new BigDecimal("195.00"), Instant.now(), false);
+                symbol, Price.parse("195.00"), Instant.now(), false);
         when(stockService.getView(symbol)).thenReturn(Optional.of(view));
 
         // When
-        ResponseEntity<StockService.StockView> response = controller.get(symbol);
+        ResponseEntity<StockService.StockView> response = controller.get(symbol, request());
 
         // Then
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
@@ -64,6 +181,56 @@ class StockControllerTest {
         assertThat(response.getBody().symbol()).isEqualTo(symbol);
     }
 
+    @Test
+    void get_setsEtagAndLastModifiedFromUpdatedAt() {
+        // Given
+        Instant updatedAt = Instant.parse("2025-01-01T12:00:00.123456Z");
+        when(stockService.getView("AAPL")).thenReturn(Optional.of(
+                new StockService.StockView("AAPL", Price.parse("195.00"), updatedAt, true)));
+
+        // When
+        ResponseEntity<StockService.StockView> response = controller.get("AAPL", request());
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo(StockController.etag(1735732800123456L));
+        assertThat(response.getHeaders().getLastModified()).isEqualTo(updatedAt.toEpochMilli() / 1000 * 1000);
+    }
+
+    @Test
+    void get_returnsNotModified_whenEtagMatches() {
+        // Given
+        Instant updatedAt = Instant.parse("2025-01-01T12:00:00Z");
+        when(stockService.getView("AAPL")).thenReturn(Optional.of(
+                new StockService.StockView("AAPL", Price.parse("195.00"), updatedAt, true)));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/stocks/AAPL");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, StockController.etag(1735732800000000L));
+
+        // When
+        ResponseEntity<StockService.StockView> response = controller.get("AAPL", request(request));
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    void get_ignoresIfModifiedSince_becausePricesChangeWithinASecond() {
+        // Given
+        Instant updatedAt = Instant.parse("2025-01-01T12:00:00.500Z");
+        when(stockService.getView("AAPL")).thenReturn(Optional.of(
+                new StockService.StockView("AAPL", Price.parse("195.00"), updatedAt, true)));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/stocks/AAPL");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, Instant.parse("2025-01-01T12:00:00Z").toEpochMilli());
+
+        // When
+        ResponseEntity<StockService.StockView> response = controller.get("AAPL", request(request));
+
+        // Then - con resolución de segundos sería un 304 con el precio anterior
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().price()).isEqualTo(Price.parse("195.00"));
+    }
+
     @Test
     void get_returnsNotFound_whenStockNotExists() {
         // Given
@@ -71,9 +238,170 @@ class StockControllerTest {
         when(stockService.getView(symbol)).thenReturn(Optional.empty());
 
         // When
-        ResponseEntity<StockService.StockView> response = controller.get(symbol);
+        ResponseEntity<StockService.StockView> response = controller.get(symbol, request());
 
         // Then
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
+
+    @Test
+    void quotes_returnsViewsForRequestedSymbols() {
+        // Given
+        List<String> symbols = List.of("AAPL", "MSFT");
+        List<StockService.StockView> views = List.of(
+                new StockService.StockView("AAPL", Price.parse("195.00"), Instant.now(), true),
+                new StockService.StockView("MSFT", Price.parse("400.00"), Instant.now(), false));
+        when(stockService.getViews(symbols)).thenReturn(views);
+
+        // When
+        ResponseEntity<List<StockService.StockView>> response = controller.quotes(symbols);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(views);
+    }
+
+    @Test
+    void quotes_returnsBadRequest_whenTooManySymbols() {
+        // Given
+        List<String> symbols = Collections.nCopies(StockController.MAX_QUOTE_SYMBOLS + 1, "AAPL");
+
+        // When
+        ResponseEntity<List<StockService.StockView>> response = controller.quotes(symbols);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(stockService);
+    }
+
+    @Test
+    void history_returnsTicksForRequestedRange() {
+        // Given
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+        List<StockTick> ticks = List.of(new StockTick("AAPL", Price.parse("195.12"), from.plusSeconds(60)));
+        when(stockService.getHistory("AAPL", from, to, 1000)).thenReturn(ticks);
+
+        // When
+        ResponseEntity<List<StockTick>> response = controller.history("AAPL", from, to, 1000);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(ticks);
+    }
+
+    // Por HTTP, no llamando al método: los nombres de @PathVariable/@RequestParam salen del
+    // bytecode y sin -parameters la petición fallaría antes de llegar al controlador
+    @Test
+    void history_bindsPathAndQueryParametersOverHttp() throws Exception {
+        // Given
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+        when(stockService.getHistory("AAPL", from, to, 10))
+                .thenReturn(List.of(new StockTick("AAPL", Price.parse("195.12"), from.plusSeconds(60))));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        // When / Then
+        mvc.perform(get("/api/stocks/AAPL/history")
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].symbol").value("AAPL"));
+    }
+
+    @Test
+    void history_defaultsToLastDay() {
+        // Given
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+
+        // When
+        controller.history("AAPL", null, to, 1000);
+
+        // Then
+        verify(stockService).getHistory("AAPL", to.minus(StockController.DEFAULT_HISTORY_RANGE), to, 1000);
+    }
+
+    @Test
+    void history_returnsBadRequest_whenRangeIsEmpty() {
+        // Given
+        Instant at = Instant.parse("2025-01-01T00:00:00Z");
+
+        // When
+        ResponseEntity<List<StockTick>> response = controller.history("AAPL", at, at, 1000);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(stockService);
+    }
+
+    @Test
+    void currentCandle_returnsOpenCandleFromMemory() {
+        // Given
+        Instant start = Instant.parse("2025-01-01T12:00:00Z");
+        Price p = Price.parse("195.12");
+        Candle candle = new Candle("AAPL", CandleInterval.M1, start, p, p, p, p, 1, start, start);
+        when(candleService.current("AAPL", CandleInterval.M1)).thenReturn(Optional.of(candle));
+
+        // When
+        ResponseEntity<Candle> response = controller.currentCandle("AAPL", "1m");
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isEqualTo(candle);
+    }
+
+    @Test
+    void currentCandle_returnsBadRequest_whenIntervalIsUnknown() {
+        // When
+        ResponseEntity<Candle> response = controller.currentCandle("AAPL", "2h");
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(candleService);
+    }
+
+    @Test
+    void candles_readsClosedCandlesForRange() {
+        // Given
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+
+        // When
+        controller.candles("AAPL", "5m", null, to, 500);
+
+        // Then
+        verify(candleService).history("AAPL", CandleInterval.M5, to.minus(StockController.DEFAULT_HISTORY_RANGE), to, 500);
+    }
+
+    @Test
+    void stream_subscribesToRequestedSymbols() {
+        // Given
+        when(priceStream.subscribe(any(), any())).thenReturn(null);
+
+        // When
+        ResponseEntity<SseEmitter> response = controller.stream(List.of("AAPL", "MSFT"));
+
+        // Then - sin hueco libre en el pod se responde 503
+        verify(priceStream).subscribe(eq(List.of("AAPL", "MSFT")), any());
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void stream_returnsBadRequest_whenTooManySymbols() {
+        // When
+        ResponseEntity<SseEmitter> response =
+                controller.stream(Collections.nCopies(StockController.MAX_QUOTE_SYMBOLS + 1, "AAPL"));
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(priceStream);
+    }
+
+    private static ServletWebRequest request() {
+        return request(new MockHttpServletRequest("GET", "/api/stocks"));
+    }
+
+    private static ServletWebRequest request(MockHttpServletRequest request) {
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
 }
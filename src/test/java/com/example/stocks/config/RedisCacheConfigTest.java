@@ -0,0 +1,24 @@
+package com.example.stocks.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import com.example.stocks.service.StockCacheService;
+
+class RedisCacheConfigTest {
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(RedisCacheConfig.class)
+            .withBean(RedisConnectionFactory.class, () -> mock(RedisConnectionFactory.class))
+            .withBean(StockCacheService.class, () -> mock(StockCacheService.class));
+
+    @Test
+    void invalidationListener_isNotCreated_byDefault() {
+        runner.run(context -> assertThat(context).doesNotHaveBean(RedisMessageListenerContainer.class));
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.stocks.containers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.service.StockCacheService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compara la memoria de Redis de las dos disposiciones de {@link StockCacheService}: una clave
+ * string por símbolo frente a hashes por bucket con valores binarios (app.cache.hash-buckets).
+ * Escribe {@code perf.cache.symbols} precios con cada una, mide el aumento de used_memory y deja
+ * el resultado en {@code perf.cache.report}. Como {@link PipelinePerfIT}, solo se ejecuta con
+ * el perfil Maven {@code perf}.
+ */
+class CacheLayoutMemoryPerfIT extends BaseContainersTest {
+
+    static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379)
+            .withReuse(true);
+
+    static {
+        redis.start();
+    }
+
+    private static final int BATCH = 1_000;
+
+    private final int symbols = Integer.getInteger("perf.cache.symbols", 50_000);
+    private final int buckets = Integer.getInteger("perf.cache.hash-buckets", 1_024);
+    private final double maxRatio = Double.parseDouble(System.getProperty("perf.cache.max-ratio", "0.6"));
+    private final Path report =
+            Path.of(System.getProperty("perf.cache.report", "target/perf/cache-layout-memory.json"));
+
+    private LettuceConnectionFactory connectionFactory;
+
+    @AfterAll
+    void closeConnection() {
+        if (connectionFactory != null) connectionFactory.destroy();
+    }
+
+    @Test
+    void hashLayoutUsesLessMemoryPerSymbol() throws IOException {
+        // Given
+        connectionFactory = new LettuceConnectionFactory(redis.getHost(), redis.getMappedPort(6379));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+        StringRedisTemplate template = new StringRedisTemplate(connectionFactory);
+        Map<String, StockCacheService.CachedStock> entries = new LinkedHashMap<>();
+        Instant updatedAt = Instant.parse("2025-01-01T12:00:00.123456Z");
+        for (int i = 0; i < symbols; i++) {
+            entries.put("SYM" + i, new StockCacheService.CachedStock(Price.ofUnits(1_000_000L + i), updatedAt));
+        }
+
+        // When
+        double stringBytes = bytesPerSymbol(template, cache(template, 0), entries);
+        double hashBytes = bytesPerSymbol(template, cache(template, buckets), entries);
+        String encoding = template.execute((RedisCallback<String>) c ->
+                String.valueOf(c.keyCommands().encodingOf("stocks:h:0".getBytes(StandardCharsets.UTF_8))));
+
+        // Then
+        write(new MemoryReport(Instant.now(), symbols, buckets, stringBytes, hashBytes, hashBytes / stringBytes,
+                encoding, maxRatio));
+        assertThat(encoding).as("codificación de los hashes").containsIgnoringCase("listpack");
+        assertThat(hashBytes / stringBytes).as("memoria hash / string").isLessThanOrEqualTo(maxRatio);
+    }
+
+    private double bytesPerSymbol(StringRedisTemplate template, StockCacheService cache,
+            Map<String, StockCacheService.CachedStock> entries) {
+        template.execute((RedisCallback<Object>) c -> {
+            c.serverCommands().flushAll();
+            return null;
+        });
+        long before = usedMemory(template);
+        List<String> symbols = List.copyOf(entries.keySet());
+        for (int from = 0; from < symbols.size(); from += BATCH) {
+            Map<String, StockCacheService.CachedStock> batch = new LinkedHashMap<>();
+            symbols.subList(from, Math.min(from + BATCH, symbols.size())).forEach(s -> batch.put(s, entries.get(s)));
+            assertThat(cache.putAll(batch)).isEqualTo(batch.size());
+        }
+        long after = usedMemory(template);
+        // Se comprueba una muestra para validar también la lectura
+        List<String> sample = IntStream.range(0, 100).mapToObj(i -> symbols.get(i * symbols.size() / 100)).toList();
+        assertThat(cache.getEntries(sample)).hasSize(sample.size());
+        return (after - before) / (double) entries.size();
+    }
+
+    private static long usedMemory(StringRedisTemplate template) {
+        Properties info = template.execute((RedisCallback<Properties>) c -> c.serverCommands().info("memory"));
+        return Long.parseLong(info.getProperty("used_memory"));
+    }
+
+    private static StockCacheService cache(StringRedisTemplate template, int hashBuckets) {
+        return new StockCacheService(template, new SimpleMeterRegistry(), false, 0, Duration.ZERO,
+                Duration.ofMinutes(10), Duration.ZERO, hashBuckets);
+    }
+
+    private void write(MemoryReport result) throws IOException {
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        new ObjectMapper().findAndRegisterModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writeValue(report.toFile(), result);
+    }
+
+    record MemoryReport(Instant finishedAt, int symbols, int hashBuckets, double stringBytesPerSymbol,
+                        double hashBytesPerSymbol, double ratio, String hashEncoding, double maxRatio) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.stocks.containers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import com.example.stocks.domain.Candle;
+import com.example.stocks.domain.CandleInterval;
+import com.example.stocks.domain.Price;
+import com.example.stocks.repository.CandleRepository;
+import com.example.stocks.service.CandleRetentionService;
+
+/**
+ * Particiones de stock_candles contra un Postgres real: una tabla stock_candles sin particionar,
+ * como la creaban las versiones anteriores, pasa a ser la partición DEFAULT sin perder filas, y
+ * el mantenimiento las reparte después en sus días.
+ */
+class CandlePartitionIT extends BaseContainersTest {
+
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16"));
+
+    static {
+        postgres.start();
+    }
+
+    private JdbcTemplate jdbc;
+    private CandleRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword()));
+        jdbc.execute("DROP TABLE IF EXISTS stock_candles, stock_candles_default CASCADE");
+        repository = new CandleRepository(jdbc);
+    }
+
+    @Test
+    void createSchema_turnsPlainTableIntoDefaultPartition() {
+        // Given - la tabla de la versión anterior, con una vela de hoy
+        jdbc.execute("""
+                CREATE TABLE stock_candles (
+                    symbol varchar(32) NOT NULL, interval_code varchar(4) NOT NULL, start_at timestamptz NOT NULL,
+                    open numeric(19, 4) NOT NULL, high numeric(19, 4) NOT NULL, low numeric(19, 4) NOT NULL,
+                    close numeric(19, 4) NOT NULL, tick_count bigint NOT NULL,
+                    first_at timestamptz NOT NULL, last_at timestamptz NOT NULL,
+                    PRIMARY KEY (symbol, interval_code, start_at))""");
+        Instant start = Instant.now().truncatedTo(ChronoUnit.MINUTES);
+        repository.upsertAll(List.of(candle(start)));
+
+        // When
+        repository.createSchema();
+        new CandleRetentionService(repository, Duration.ofDays(7), 2).maintain();
+
+        // Then
+        LocalDate today = LocalDate.ofInstant(start, ZoneOffset.UTC);
+        assertThat(countIn("stock_candles_default")).isZero();
+        assertThat(countIn("stock_candles_" + today.toString().replace("-", ""))).isEqualTo(1);
+        assertThat(repository.findBySymbolBetween("AAPL", CandleInterval.M1, start, start.plusSeconds(60), 10))
+                .singleElement()
+                .satisfies(c -> assertThat(c.count()).isEqualTo(3));
+    }
+
+    @Test
+    void maintain_movesFutureCandlesOutOfDefaultPartition() {
+        // Given
+        repository.createSchema();
+        new CandleRetentionService(repository, Duration.ofDays(7), 2).maintain();
+        Instant future = Instant.now().plus(10, ChronoUnit.DAYS).truncatedTo(ChronoUnit.MINUTES);
+        repository.upsertAll(List.of(candle(future)));
+        assertThat(countIn("stock_candles_default")).isEqualTo(1);
+
+        // When
+        new CandleRetentionService(repository, Duration.ofDays(7), 15).maintain();
+
+        // Then
+        assertThat(countIn("stock_candles_default")).isZero();
+        assertThat(repository.findPartitionDays()).contains(LocalDate.ofInstant(future, ZoneOffset.UTC));
+    }
+
+    private static Candle candle(Instant start) {
+        return new Candle("AAPL", CandleInterval.M1, start, Price.parse("100"), Price.parse("105"),
+                Price.parse("95"), Price.parse("101"), 3, start.plusSeconds(1), start.plusSeconds(50));
+    }
+
+    private int countIn(String table) {
+        return jdbc.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+    }
+}
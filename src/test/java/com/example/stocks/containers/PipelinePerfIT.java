@@ -0,0 +1,265 @@
+package com.example.stocks.containers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.messaging.StockUpdateMessage;
+import com.example.stocks.service.StockCacheService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import io.awspring.cloud.sqs.operations.SendResult;
+import io.awspring.cloud.sqs.operations.SqsTemplate;
+
+/**
+ * Prueba de rendimiento del pipeline completo SQS → Postgres → Redis, fuera del {@code verify}
+ * normal: solo se ejecuta con el perfil Maven {@code perf} ({@code mvn -Pperf verify}).
+ *
+ * Publica {@code perf.messages} ticks repartidos en {@code perf.symbols} símbolos, mide los
+ * mensajes/s hasta que el último precio de cada símbolo es visible en Postgres y en Redis, y
+ * después el p99 de {@code GET /api/stocks/{symbol}} con {@code perf.readers} clientes a la vez,
+ * junto con las transacciones por segundo que esas lecturas llegan a Postgres (el delta de
+ * xact_commit + xact_rollback en pg_stat_database): con la caché caliente deberían ser casi cero.
+ * El resultado se escribe en {@code perf.report} (JSON) y la prueba falla si baja de
+ * {@code perf.min-throughput} o supera {@code perf.max-read-p99-ms}.
+ *
+ * Los contenedores se arrancan con {@code withReuse(true)}: con
+ * {@code testcontainers.reuse.enable=true} en {@code ~/.testcontainers.properties} sobreviven
+ * entre ejecuciones y no se paga su arranque en cada medición.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PipelinePerfIT extends BaseContainersTest {
+
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16"))
+            .withReuse(true);
+    static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379)
+            .withReuse(true);
+    static final LocalStackContainer localstack =
+            new LocalStackContainer(DockerImageName.parse("localstack/localstack:3"))
+                    .withServices(LocalStackContainer.Service.SQS)
+                    .withReuse(true);
+
+    static {
+        postgres.start();
+        redis.start();
+        localstack.start();
+    }
+
+    // Cola propia por ejecución: con contenedores reutilizados no quedan mensajes de la anterior
+    private static final String QUEUE = "perf-" + System.currentTimeMillis();
+    private static final String SYMBOL_PREFIX = "PERF";
+    private static final int BATCH_SIZE = 10;
+
+    private final int messages = Integer.getInteger("perf.messages", 20_000);
+    private final int symbols = Integer.getInteger("perf.symbols", 1_000);
+    private final int senders = Integer.getInteger("perf.senders", 8);
+    private final int readers = Integer.getInteger("perf.readers", 32);
+    private final int reads = Integer.getInteger("perf.reads", 20_000);
+    private final double minThroughput = Double.parseDouble(System.getProperty("perf.min-throughput", "300"));
+    private final double maxReadP99Ms = Double.parseDouble(System.getProperty("perf.max-read-p99-ms", "50"));
+    private final Duration timeout = Duration.parse(System.getProperty("perf.timeout", "PT5M"));
+    // Cada backend publica sus contadores en pg_stat_database como mucho cada segundo, o a los
+    // 10 s si se queda inactivo: se espera esto antes de leerlos
+    private final Duration statsSettle = Duration.parse(System.getProperty("perf.db-stats-settle", "PT11S"));
+    private final Path report = Path.of(System.getProperty("perf.report", "target/perf/pipeline-perf.json"));
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+        registry.add("spring.cloud.aws.region.static", localstack::getRegion);
+        registry.add("spring.cloud.aws.sqs.endpoint", () -> localstack.getEndpoint().toString());
+        registry.add("spring.cloud.aws.credentials.access-key", localstack::getAccessKey);
+        registry.add("spring.cloud.aws.credentials.secret-key", localstack::getSecretKey);
+        registry.add("app.sqs.queue-name", () -> QUEUE);
+    }
+
+    @Autowired
+    private SqsTemplate sqsTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockCacheService cacheService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void pipelineSustainsThroughputAndReadLatency() throws Exception {
+        // Given
+        List<String> symbolNames = IntStream.range(0, symbols)
+                .mapToObj(i -> SYMBOL_PREFIX + i)
+                .toList();
+        int rounds = Math.max(1, messages / symbols);
+        Instant base = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant last = base.plusMillis(rounds - 1L);
+
+        // When - ingesta: se mide hasta que el último tick de cada símbolo es visible
+        long start = System.nanoTime();
+        int failed = send(symbolNames, rounds, base);
+        Awaitility.await()
+                .atMost(timeout)
+                .pollInterval(Duration.ofMillis(200))
+                .until(() -> visible(symbolNames, last));
+        double ingestSeconds = (System.nanoTime() - start) / 1e9;
+        double throughput = (rounds * (double) symbols) / ingestSeconds;
+
+        // When - lecturas concurrentes sobre la API. El delta incluye también las tareas en
+        // segundo plano durante las esperas y la propia consulta de medida: es una cota superior.
+        long dbBefore = dbTransactions();
+        long readStart = System.nanoTime();
+        long[] latencies = readLoad(symbolNames);
+        double readSeconds = (System.nanoTime() - readStart) / 1e9;
+        long readDbTransactions = dbTransactions() - dbBefore;
+
+        // Then
+        PerfReport result = new PerfReport(Instant.now(), rounds * symbols, symbols, failed, ingestSeconds,
+                throughput, latencies.length, percentileMs(latencies, 0.50), percentileMs(latencies, 0.99),
+                percentileMs(latencies, 1.0), readSeconds, readDbTransactions, readDbTransactions / readSeconds,
+                minThroughput, maxReadP99Ms);
+        write(result);
+
+        assertThat(failed).as("mensajes rechazados por SQS").isZero();
+        assertThat(result.throughput()).as("mensajes/s").isGreaterThanOrEqualTo(minThroughput);
+        assertThat(result.readP99Ms()).as("p99 de GET /api/stocks/{symbol} (ms)").isLessThanOrEqualTo(maxReadP99Ms);
+    }
+
+    private int send(List<String> symbolNames, int rounds, Instant base) {
+        int total = rounds * symbolNames.size();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < senders; t++) {
+                executor.submit(() -> {
+                    for (int from = next.getAndAdd(BATCH_SIZE); from < total; from = next.getAndAdd(BATCH_SIZE)) {
+                        List<Message<StockUpdateMessage>> batch = new ArrayList<>(BATCH_SIZE);
+                        for (int i = from; i < Math.min(from + BATCH_SIZE, total); i++) {
+                            int round = i / symbolNames.size();
+                            Price price = Price.ofUnits(1_000_000L + round * 100L);
+                            batch.add(MessageBuilder.withPayload(new StockUpdateMessage(
+                                    symbolNames.get(i % symbolNames.size()), price, base.plusMillis(round))).build());
+                        }
+                        SendResult.Batch<StockUpdateMessage> result = sqsTemplate.sendMany(QUEUE, batch);
+                        failed.addAndGet(result.failed().size());
+                    }
+                });
+            }
+        }
+        return failed.get();
+    }
+
+    private boolean visible(List<String> symbolNames, Instant last) {
+        Integer inDb = jdbcTemplate.queryForObject(
+                "select count(*) from stocks where symbol like ? and updated_at >= ?",
+                Integer.class, SYMBOL_PREFIX + "%", Timestamp.from(last));
+        if (inDb == null || inDb < symbolNames.size()) return false;
+        Map<String, StockCacheService.CachedStock> cached = cacheService.getEntries(symbolNames);
+        return cached.size() == symbolNames.size()
+                && cached.values().stream().allMatch(e -> e.updatedAt() != null && !e.updatedAt().isBefore(last));
+    }
+
+    private long dbTransactions() throws InterruptedException {
+        Thread.sleep(statsSettle.toMillis());
+        Long transactions = jdbcTemplate.queryForObject("select xact_commit + xact_rollback from pg_stat_database"
+                + " where datname = current_database()", Long.class);
+        return transactions != null ? transactions : 0;
+    }
+
+    private long[] readLoad(List<String> symbolNames) {
+        HttpClient client = HttpClient.newHttpClient();
+        long[] latencies = new long[reads];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < readers; t++) {
+                executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < reads; i = next.getAndIncrement()) {
+                        String symbol = symbolNames.get(ThreadLocalRandom.current().nextInt(symbolNames.size()));
+                        HttpRequest request = HttpRequest.newBuilder(
+                                URI.create("http://localhost:" + port + "/api/stocks/" + symbol)).GET().build();
+                        long started = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) errors.incrementAndGet();
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        latencies[i] = System.nanoTime() - started;
+                    }
+                });
+            }
+        }
+        assertThat(errors.get()).as("lecturas fallidas").isZero();
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static double percentileMs(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private void write(PerfReport result) throws IOException {
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        objectMapper.copy()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writeValue(report.toFile(), result);
+    }
+
+    record PerfReport(Instant finishedAt, int messages, int symbols, int failedSends, double ingestSeconds,
+                      double throughput, int reads, double readP50Ms, double readP99Ms, double readMaxMs,
+                      double readSeconds, long readDbTransactions, double readDbQps,
+                      double minThroughput, double maxReadP99Ms) {
+    }
+}
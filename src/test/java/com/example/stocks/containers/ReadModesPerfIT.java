@@ -0,0 +1,227 @@
+package com.example.stocks.containers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import com.example.stocks.JavaAvanzadoTestcontainersApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Compara la ruta de lectura en los dos modos web con la misma carga: el servlet (Tomcat, un
+ * hilo virtual por petición) y el reactivo (Netty, Redis reactivo y R2DBC). Como
+ * {@link PipelinePerfIT}, solo se ejecuta con el perfil Maven {@code perf}.
+ *
+ * Cada modo arranca su propio contexto contra los mismos contenedores, con Redis vacío: el
+ * calentamiento ({@code perf.modes.warmup}) pasa por la base de datos y rellena la caché, y
+ * después se miden {@code perf.modes.reads} peticiones con {@code perf.modes.concurrency}
+ * clientes a la vez (una de cada diez es {@code /quotes} con diez símbolos). El resultado queda
+ * en {@code perf.modes.report}, con el cociente de throughput reactivo / servlet, y la prueba
+ * falla si hay errores o si el p99 de algún modo supera {@code perf.modes.max-p99-ms}. Ese umbral
+ * es solo una red contra regresiones: la comparación entre modos se lee en el informe.
+ */
+class ReadModesPerfIT extends BaseContainersTest {
+
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16"))
+            .withReuse(true);
+    static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379)
+            .withReuse(true);
+    static final LocalStackContainer localstack =
+            new LocalStackContainer(DockerImageName.parse("localstack/localstack:3"))
+                    .withServices(LocalStackContainer.Service.SQS)
+                    .withReuse(true);
+
+    static {
+        postgres.start();
+        redis.start();
+        localstack.start();
+    }
+
+    private static final String QUEUE = "perf-modes-" + System.currentTimeMillis();
+    private static final String SYMBOL_PREFIX = "MODE";
+    private static final int QUOTE_SYMBOLS = 10;
+
+    private final int symbols = Integer.getInteger("perf.modes.symbols", 1_000);
+    private final int concurrency = Integer.getInteger("perf.modes.concurrency", 256);
+    private final int warmup = Integer.getInteger("perf.modes.warmup", 5_000);
+    private final int reads = Integer.getInteger("perf.modes.reads", 50_000);
+    private final double maxP99Ms = Double.parseDouble(System.getProperty("perf.modes.max-p99-ms", "500"));
+    private final Path report = Path.of(System.getProperty("perf.modes.report", "target/perf/read-modes.json"));
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void bothModesServeTheSameReadLoad() throws IOException {
+        // Given
+        List<String> symbolNames = IntStream.range(0, symbols)
+                .mapToObj(i -> SYMBOL_PREFIX + i)
+                .toList();
+
+        // When
+        Map<String, ModeResult> results = new LinkedHashMap<>();
+        for (WebApplicationType mode : List.of(WebApplicationType.SERVLET, WebApplicationType.REACTIVE)) {
+            results.put(mode.name().toLowerCase(), measure(mode, symbolNames));
+        }
+
+        // Then
+        double ratio = results.get("reactive").throughput() / results.get("servlet").throughput();
+        write(new ModesReport(Instant.now(), symbols, concurrency, warmup, reads, maxP99Ms, results, ratio));
+        results.forEach((mode, result) -> {
+            assertThat(result.errors()).as("lecturas fallidas en modo %s", mode).isZero();
+            assertThat(result.p99Ms()).as("p99 en modo %s", mode).isLessThanOrEqualTo(maxP99Ms);
+        });
+    }
+
+    private ModeResult measure(WebApplicationType mode, List<String> symbolNames) {
+        try (ConfigurableApplicationContext context = start(mode)) {
+            seed(context.getBean(JdbcTemplate.class), symbolNames);
+            StringRedisTemplate template = context.getBean(StringRedisTemplate.class);
+            template.execute((RedisCallback<Object>) c -> {
+                c.serverCommands().flushAll();
+                return null;
+            });
+            int port = Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+
+            load(port, symbolNames, new long[warmup], new AtomicLong());
+            long[] latencies = new long[reads];
+            AtomicLong errors = new AtomicLong();
+            long start = System.nanoTime();
+            load(port, symbolNames, latencies, errors);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latencies);
+            return new ModeResult(reads / seconds, percentileMs(latencies, 0.50), percentileMs(latencies, 0.99),
+                    percentileMs(latencies, 1.0), errors.get());
+        }
+    }
+
+    // Argumentos de línea de comandos: a diferencia de SpringApplicationBuilder#properties
+    // tienen prioridad sobre application.yml
+    private static ConfigurableApplicationContext start(WebApplicationType mode) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.main.web-application-type", mode.name().toLowerCase());
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", postgres.getJdbcUrl());
+        properties.put("spring.datasource.username", postgres.getUsername());
+        properties.put("spring.datasource.password", postgres.getPassword());
+        properties.put("app.reactive.r2dbc.url", "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName());
+        properties.put("app.reactive.r2dbc.username", postgres.getUsername());
+        properties.put("app.reactive.r2dbc.password", postgres.getPassword());
+        properties.put("spring.data.redis.host", redis.getHost());
+        properties.put("spring.data.redis.port", redis.getMappedPort(6379));
+        properties.put("spring.cloud.aws.region.static", localstack.getRegion());
+        properties.put("spring.cloud.aws.sqs.endpoint", localstack.getEndpoint().toString());
+        properties.put("spring.cloud.aws.credentials.access-key", localstack.getAccessKey());
+        properties.put("spring.cloud.aws.credentials.secret-key", localstack.getSecretKey());
+        properties.put("app.sqs.queue-name", QUEUE);
+        String[] args = properties.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(JavaAvanzadoTestcontainersApplication.class)
+                .profiles("test")
+                .run(args);
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, List<String> symbolNames) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(symbolNames.size());
+        for (int i = 0; i < symbolNames.size(); i++) {
+            rows.add(new Object[] {symbolNames.get(i), BigDecimal.valueOf(100_00L + i, 2), now});
+        }
+        jdbcTemplate.batchUpdate("insert into stocks (symbol, price, updated_at) values (?, ?, ?) "
+                + "on conflict (symbol) do update set price = excluded.price, updated_at = excluded.updated_at", rows);
+    }
+
+    private void load(int port, List<String> symbolNames, long[] latencies, AtomicLong errors) {
+        AtomicInteger next = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < concurrency; t++) {
+                executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < latencies.length; i = next.getAndIncrement()) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+                                + (i % 10 == 0 ? quotesPath(symbolNames) : "/api/stocks/" + random(symbolNames))))
+                                .GET()
+                                .build();
+                        long started = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) errors.incrementAndGet();
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        latencies[i] = System.nanoTime() - started;
+                    }
+                });
+            }
+        }
+    }
+
+    private static String quotesPath(List<String> symbolNames) {
+        return "/api/stocks/quotes?symbols=" + IntStream.range(0, QUOTE_SYMBOLS)
+                .mapToObj(i -> random(symbolNames))
+                .collect(Collectors.joining(","));
+    }
+
+    private static String random(List<String> symbolNames) {
+        return symbolNames.get(ThreadLocalRandom.current().nextInt(symbolNames.size()));
+    }
+
+    private static double percentileMs(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private void write(ModesReport result) throws IOException {
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        new ObjectMapper().findAndRegisterModules()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writeValue(report.toFile(), result);
+    }
+
+    record ModeResult(double throughput, double p50Ms, double p99Ms, double maxMs, long errors) {
+    }
+
+    record ModesReport(Instant finishedAt, int symbols, int concurrency, int warmup, int reads, double maxP99Ms,
+                       Map<String, ModeResult> modes, double reactiveToServletThroughput) {
+    }
+}
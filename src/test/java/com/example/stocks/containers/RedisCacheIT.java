@@ -33,7 +33,8 @@ import org.testcontainers.junit.jupiter.Testcontainers;
  * @see <a href="docs/ejercicio-redis.md">Guía completa del ejercicio</a>
  */
 @DataRedisTest
-// TODO: Añadir @Import(StockCacheService.class) para importar el servicio
+// TODO: Añadir @Import({StockCacheService.class, SimpleMeterRegistry.class}) para importar el servicio
+// y el MeterRegistry de sus métricas
 @Testcontainers
 @ActiveProfiles("test")
 class RedisCacheIT {
@@ -52,7 +53,7 @@ class RedisCacheIT {
     @Test
     void putCache() {
         // TODO: Implementar el test
-        // 1) Usar cache.put("GOOG", BigDecimal.TEN) para guardar un valor
+        // 1) Usar cache.put("GOOG", BigDecimal.TEN, Instant.now()) para guardar un valor
         // 2) Usar cache.get("GOOG") para recuperarlo
         // 3) Verificar con assertThat que el valor devuelto es BigDecimal.TEN
     }
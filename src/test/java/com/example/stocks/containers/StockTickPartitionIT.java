@@ -0,0 +1,88 @@
+package com.example.stocks.containers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import com.example.stocks.domain.Stock;
+import com.example.stocks.repository.StockTickRepository;
+import com.example.stocks.service.StockTickRetentionService;
+
+/**
+ * Mantenimiento de las particiones de stock_ticks contra un Postgres real: un tick con fecha
+ * más allá de precreate-days cae en la partición DEFAULT, y crear después la partición de ese
+ * día no debe fallar ni perder la fila.
+ */
+class StockTickPartitionIT extends BaseContainersTest {
+
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16"));
+
+    static {
+        postgres.start();
+    }
+
+    private JdbcTemplate jdbc;
+    private StockTickRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword()));
+        jdbc.execute("DROP TABLE IF EXISTS stock_ticks CASCADE");
+        repository = new StockTickRepository(jdbc);
+        repository.createSchema();
+    }
+
+    @Test
+    void maintain_movesFutureTicksOutOfDefaultPartition() {
+        // Given - un tick a 10 días vista, con particiones solo para los 2 próximos
+        new StockTickRetentionService(repository, Duration.ofDays(7), 2).maintain();
+        Instant future = Instant.now().plus(10, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+        LocalDate futureDay = LocalDate.ofInstant(future, ZoneOffset.UTC);
+        repository.appendAll(List.of(new Stock("AAPL", new BigDecimal("195.12"), future)));
+        assertThat(countIn("stock_ticks_default")).isEqualTo(1);
+
+        // When
+        new StockTickRetentionService(repository, Duration.ofDays(7), 15).maintain();
+
+        // Then
+        assertThat(repository.findPartitionDays()).contains(futureDay);
+        assertThat(countIn("stock_ticks_default")).isZero();
+        assertThat(countIn(partitionName(futureDay))).isEqualTo(1);
+        assertThat(repository.findBySymbolBetween("AAPL", future, future.plusSeconds(1), 10)).hasSize(1);
+    }
+
+    @Test
+    void maintain_isIdempotent_whenPartitionsAlreadyExist() {
+        // Given
+        StockTickRetentionService retention = new StockTickRetentionService(repository, Duration.ofDays(7), 2);
+        retention.maintain();
+
+        // When
+        retention.maintain();
+
+        // Then
+        assertThat(repository.findPartitionDays()).hasSize(3);
+    }
+
+    private int countIn(String table) {
+        return jdbc.queryForObject("SELECT count(*) FROM " + table, Integer.class);
+    }
+
+    private static String partitionName(LocalDate day) {
+        return "stock_ticks_" + day.toString().replace("-", "");
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.stocks.containers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.awaitility.Awaitility;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.messaging.StockUpdateMessage;
+import com.example.stocks.service.StockPriceStream;
+
+import io.awspring.cloud.sqs.operations.SqsTemplate;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Prueba de carga de la ingesta con spring.threads.virtual.enabled=true contra Postgres, Redis y
+ * SQS reales: los mensajes entran por el listener SQS, se escriben con JDBC, pasan a Redis y se
+ * difunden a suscriptores lentos de {@link StockPriceStream}. Durante toda la carga JFR registra
+ * jdk.VirtualThreadPinned, y no debe haber ningún evento: un hilo virtual bloqueado dentro de
+ * synchronized (en nuestro código o en el de un driver) ocupa su hilo portador.
+ *
+ * Un bloqueo dentro de synchronized en un hilo virtual propio sirve de control de que la grabación
+ * detecta los eventos.
+ */
+@SpringBootTest(properties = "spring.threads.virtual.enabled=true")
+class VirtualThreadPinningIT extends BaseContainersTest {
+
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16"));
+    static final GenericContainer<?> redis = new GenericContainer<>(DockerImageName.parse("redis:7-alpine"))
+            .withExposedPorts(6379);
+    static final LocalStackContainer localstack =
+            new LocalStackContainer(DockerImageName.parse("localstack/localstack:3"))
+                    .withServices(LocalStackContainer.Service.SQS);
+
+    static {
+        postgres.start();
+        redis.start();
+        localstack.start();
+    }
+
+    private static final String QUEUE = "pinning-" + System.currentTimeMillis();
+    private static final String CONTROL_THREAD = "pinning-control";
+    private static final int SYMBOLS = 50;
+    private static final int ROUNDS = 40;
+    private static final int SUBSCRIBERS = 50;
+    private static final int BATCH_SIZE = 10;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.data.redis.host", redis::getHost);
+        registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+        registry.add("spring.cloud.aws.region.static", localstack::getRegion);
+        registry.add("spring.cloud.aws.sqs.endpoint", () -> localstack.getEndpoint().toString());
+        registry.add("spring.cloud.aws.credentials.access-key", localstack::getAccessKey);
+        registry.add("spring.cloud.aws.credentials.secret-key", localstack::getSecretKey);
+        registry.add("app.sqs.queue-name", () -> QUEUE);
+    }
+
+    @Autowired
+    private SqsTemplate sqsTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StockPriceStream priceStream;
+
+    @Test
+    void ingestPath_doesNotPinVirtualThreads() throws Exception {
+        // Given - suscriptores que tardan en recibir, como un cliente SSE lento
+        List<String> symbols = IntStream.range(0, SYMBOLS).mapToObj(i -> "PIN" + i).toList();
+        AtomicInteger delivered = new AtomicInteger();
+        List<StockPriceStream.Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            subscriptions.add(priceStream.subscribe(symbols, tick -> {
+                sleep(1);
+                delivered.incrementAndGet();
+            }));
+        }
+        Instant base = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant last = base.plusMillis(ROUNDS - 1L);
+
+        List<String> pinned = new CopyOnWriteArrayList<>();
+        List<String> control = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", event -> {
+                String thread = event.getThread() != null ? event.getThread().getJavaName() : "?";
+                (CONTROL_THREAD.equals(thread) ? control : pinned).add(thread + describe(event));
+            });
+            recording.startAsync();
+
+            // When - la carga entra por SQS y se espera a que el último tick de cada símbolo esté en BD
+            for (int round = 0; round < ROUNDS; round++) {
+                send(symbols, round, base);
+            }
+            Awaitility.await()
+                    .atMost(Duration.ofMinutes(2))
+                    .pollInterval(Duration.ofMillis(200))
+                    .until(() -> visible(last) && delivered.get() > 0);
+
+            Object monitor = new Object();
+            Thread.ofVirtual().name(CONTROL_THREAD).start(() -> {
+                synchronized (monitor) {
+                    sleep(50);
+                }
+            }).join();
+            recording.stop();
+        } finally {
+            subscriptions.forEach(StockPriceStream.Subscription::close);
+        }
+
+        // Then
+        assertThat(control).as("evento de control").hasSize(1);
+        assertThat(pinned).as("hilos virtuales fijados durante la ingesta").isEmpty();
+    }
+
+    private void send(List<String> symbols, int round, Instant base) {
+        Price price = Price.ofUnits(1_000_000L + round * 100L);
+        for (int from = 0; from < symbols.size(); from += BATCH_SIZE) {
+            List<Message<StockUpdateMessage>> batch = symbols.subList(from, Math.min(from + BATCH_SIZE, symbols.size()))
+                    .stream()
+                    .map(symbol -> MessageBuilder.withPayload(
+                            new StockUpdateMessage(symbol, price, base.plusMillis(round))).build())
+                    .toList();
+            assertThat(sqsTemplate.sendMany(QUEUE, batch).failed()).isEmpty();
+        }
+    }
+
+    private boolean visible(Instant last) {
+        Integer inDb = jdbcTemplate.queryForObject(
+                "select count(*) from stocks where symbol like 'PIN%' and updated_at >= ?",
+                Integer.class, Timestamp.from(last));
+        return inDb != null && inDb == SYMBOLS;
+    }
+
+    // Los primeros marcos de la pila, para saber qué monitor ha fijado el hilo
+    private static String describe(RecordedEvent event) {
+        if (event.getStackTrace() == null) return "";
+        return event.getStackTrace().getFrames().stream()
+                .limit(8)
+                .map(RecordedFrame::getMethod)
+                .map(m -> m.getType().getName() + "." + m.getName())
+                .collect(Collectors.joining("\n  at ", "\n  at ", ""));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
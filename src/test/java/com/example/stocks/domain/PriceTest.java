@@ -0,0 +1,92 @@
+package com.example.stocks.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.stocks.messaging.StockUpdateMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+class PriceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void parse_readsPlainDecimalsAsTenThousandths() {
+        assertThat(Price.parse("195.12").units()).isEqualTo(1_951_200L);
+        assertThat(Price.parse("10").units()).isEqualTo(100_000L);
+        assertThat(Price.parse("0.0001").units()).isEqualTo(1L);
+        assertThat(Price.parse("-1.5").units()).isEqualTo(-15_000L);
+        assertThat(Price.parse("x:42.5", 2, 6).units()).isEqualTo(425_000L);
+    }
+
+    @Test
+    void parse_roundsExtraDecimalsAndAcceptsExponents() {
+        assertThat(Price.parse("1.00005").units()).isEqualTo(10_001L);
+        assertThat(Price.parse("1.5E2").units()).isEqualTo(1_500_000L);
+    }
+
+    @Test
+    void parse_rejectsInvalidOrOutOfRangeValues() {
+        assertThatThrownBy(() -> Price.parse("not-a-number")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Price.parse(".")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Price.parse("")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Price.parse("99999999999999999999")).isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    void toString_usesMinimalPlainNotation() {
+        assertThat(Price.ofUnits(1_955_000L)).hasToString("195.5");
+        assertThat(Price.ofUnits(100_000L)).hasToString("10");
+        assertThat(Price.ofUnits(50L)).hasToString("0.005");
+        assertThat(Price.ofUnits(-5_000L)).hasToString("-0.5");
+    }
+
+    @Test
+    void toBigDecimal_roundTripsWithMinimalScale() {
+        // Given
+        Price ten = Price.of(BigDecimal.TEN);
+
+        // Then - BigDecimal.equals compara también la escala
+        assertThat(ten.toBigDecimal()).isEqualTo(BigDecimal.TEN);
+        assertThat(Price.parse("195.50").toBigDecimal()).isEqualTo(new BigDecimal("195.5"));
+        assertThat(Price.parse(Price.parse("421.87").toString())).isEqualTo(Price.parse("421.87"));
+    }
+
+    @Test
+    void json_deserializesNumberTextAndSerializesAsNumber() throws Exception {
+        // When
+        StockUpdateMessage msg = objectMapper.readValue(
+                "{\"price\":195.12,\"symbol\":\"AAPL\",\"updatedAt\":\"2025-01-01T12:00:00Z\"}",
+                StockUpdateMessage.class);
+
+        // Then
+        assertThat(msg.price()).isEqualTo(Price.parse("195.12"));
+        assertThat(msg.updatedAt()).isEqualTo(Instant.parse("2025-01-01T12:00:00Z"));
+        assertThat(objectMapper.writeValueAsString(new StockSummary("AAPL", msg.price(), null)))
+                .contains("\"price\":195.12");
+    }
+
+    @Test
+    void json_rejectsNonNumericPrice() {
+        assertThatThrownBy(() -> objectMapper.readValue("{\"symbol\":\"AAPL\",\"price\":\"abc\"}",
+                StockUpdateMessage.class))
+                .isInstanceOf(InvalidFormatException.class);
+    }
+
+    @Test
+    void converter_mapsToAndFromNumericColumn() {
+        // Given
+        PriceConverter converter = new PriceConverter();
+
+        // Then
+        assertThat(converter.convertToDatabaseColumn(Price.parse("195.12"))).isEqualByComparingTo("195.12");
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("195.1200"))).isEqualTo(Price.parse("195.12"));
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.stocks.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.stocks.service.IngestMetrics;
+
+import io.awspring.cloud.sqs.listener.SqsContainerOptions;
+import io.awspring.cloud.sqs.listener.backpressure.BackPressureHandler.ReleaseReason;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IngestBackPressureTest {
+
+    private MeterRegistry registry;
+    private Timer writes;
+    private IngestBackPressure backPressure;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        writes = registry.timer(IngestMetrics.WRITE_TIMER);
+        backPressure = new IngestBackPressure(registry, Duration.ofMillis(500), Duration.ofMillis(100));
+    }
+
+    @Test
+    void sample_halvesFactor_whenWriteLatencyExceedsThreshold() {
+        // Given
+        writes.record(Duration.ofSeconds(1));
+
+        // When
+        backPressure.sample();
+
+        // Then
+        assertThat(backPressure.factor()).isEqualTo(0.5);
+    }
+
+    @Test
+    void sample_reactsToPoolWait_andOnlyToRecentSamples() {
+        // Given
+        Timer acquire = registry.timer(IngestBackPressure.POOL_ACQUIRE_TIMER);
+        acquire.record(Duration.ofMillis(300));
+        backPressure.sample();
+
+        // When - nuevas esperas cortas: la espera antigua ya no cuenta
+        acquire.record(Duration.ofMillis(1));
+        backPressure.sample();
+
+        // Then
+        assertThat(backPressure.factor()).isEqualTo(0.5 + IngestBackPressure.RECOVERY_STEP);
+    }
+
+    @Test
+    void sample_recoversGraduallyAndNeverDropsBelowMinimum() {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            writes.record(Duration.ofSeconds(1));
+            backPressure.sample();
+        }
+        assertThat(backPressure.factor()).isEqualTo(IngestBackPressure.MIN_FACTOR);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            backPressure.sample();
+        }
+
+        // Then
+        assertThat(backPressure.factor()).isEqualTo(1.0);
+    }
+
+    @Test
+    void handler_limitsInFlightMessagesByFactor() throws Exception {
+        // Given
+        IngestBackPressure.Handler handler = (IngestBackPressure.Handler) backPressure.handlerFactory()
+                .createBackPressureHandler(SqsContainerOptions.builder().maxConcurrentMessages(40).build());
+        writes.record(Duration.ofSeconds(1));
+        backPressure.sample();
+
+        // When
+        int first = handler.request(10);
+        int second = handler.request(10);
+        int third = handler.request(10);
+        handler.release(10, ReleaseReason.PROCESSED);
+        int afterRelease = handler.request(10);
+
+        // Then - 40 * 0.5 = 20 permisos
+        assertThat(first).isEqualTo(10);
+        assertThat(second).isEqualTo(10);
+        assertThat(third).isZero();
+        assertThat(afterRelease).isEqualTo(10);
+    }
+}
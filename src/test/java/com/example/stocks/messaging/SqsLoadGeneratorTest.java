@@ -0,0 +1,115 @@
+package com.example.stocks.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+
+import io.awspring.cloud.sqs.operations.SendResult;
+import io.awspring.cloud.sqs.operations.SqsTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class SqsLoadGeneratorTest {
+
+    @Mock
+    private SqsTemplate sqsTemplate;
+
+    private SqsLoadGenerator generator(int symbols, double skew) {
+        return new SqsLoadGenerator(sqsTemplate, "test-queue", 1000, symbols, skew, 2,
+                Duration.ofMillis(300), Duration.ofMillis(100));
+    }
+
+    @Test
+    void sampleRank_concentratesTicksOnTopSymbols_withZipfSkew() {
+        // Given
+        SqsLoadGenerator zipf = generator(100, 1.0);
+        SqsLoadGenerator uniform = generator(100, 0.0);
+
+        // Then - con s=1 y 100 símbolos, el primero se lleva ~19% y los 10 primeros ~56%
+        assertThat(zipf.sampleRank(0.0)).isZero();
+        assertThat(zipf.sampleRank(0.18)).isZero();
+        assertThat(zipf.sampleRank(0.5)).isLessThan(10);
+        assertThat(zipf.sampleRank(1.0)).isEqualTo(99);
+        assertThat(uniform.sampleRank(0.5)).isEqualTo(49);
+    }
+
+    @Test
+    void nextBatch_buildsFullBatchOfPositivePrices() {
+        // When
+        List<Message<StockUpdateMessage>> batch = generator(5, 1.0).nextBatch();
+
+        // Then
+        assertThat(batch).hasSize(SqsLoadGenerator.BATCH_SIZE)
+                .allSatisfy(m -> {
+                    assertThat(m.getPayload().symbol()).startsWith("SYM");
+                    assertThat(m.getPayload().price().units()).isPositive();
+                    assertThat(m.getPayload().updatedAt()).isNotNull();
+                });
+    }
+
+    @Test
+    void nextBatch_givesEachMessageAStrictlyIncreasingTimestamp() {
+        // Given
+        SqsLoadGenerator generator = generator(5, 1.0);
+
+        // When
+        List<Instant> stamps = Stream.concat(generator.nextBatch().stream(), generator.nextBatch().stream())
+                .map(m -> m.getPayload().updatedAt())
+                .toList();
+
+        // Then
+        assertThat(stamps).hasSize(2 * SqsLoadGenerator.BATCH_SIZE).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void run_sendsBatchesWithSendManyUntilDurationElapses() throws Exception {
+        // Given
+        when(sqsTemplate.sendMany(eq("test-queue"), anyList())).thenAnswer(inv -> new SendResult.Batch<>(
+                Collections.nCopies(inv.<List<?>>getArgument(1).size(), (SendResult<Object>) null), List.of()));
+        SqsLoadGenerator generator = generator(10, 1.0);
+
+        // When
+        generator.run();
+
+        // Then - ~1000 msg/s durante 300 ms
+        verify(sqsTemplate, atLeastOnce()).sendMany(eq("test-queue"), anyList());
+        assertThat(generator.sent()).isBetween(100L, 400L).matches(n -> n % SqsLoadGenerator.BATCH_SIZE == 0);
+        assertThat(generator.failed()).isZero();
+    }
+
+    @Test
+    void run_countsFailedBatches() throws Exception {
+        // Given
+        when(sqsTemplate.sendMany(eq("test-queue"), anyList())).thenThrow(new IllegalStateException("down"));
+        SqsLoadGenerator generator = generator(10, 1.0);
+
+        // When
+        generator.run();
+
+        // Then
+        assertThat(generator.sent()).isZero();
+        assertThat(generator.failed()).isPositive();
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveRate() {
+        assertThatThrownBy(() -> new SqsLoadGenerator(sqsTemplate, "q", 0, 10, 1.0, 1, Duration.ZERO, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.stocks.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.Stock;
+import com.example.stocks.service.IngestMetrics;
+import com.example.stocks.service.StockService;
+
+import io.awspring.cloud.sqs.listener.acknowledgement.BatchAcknowledgement;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class SqsStockBatchListenerTest {
+
+    @Mock
+    private StockService stockService;
+
+    @Mock
+    private BatchAcknowledgement<StockUpdateMessage> acknowledgement;
+
+    @Mock
+    private StockUpdateCoalescer coalescer;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SqsStockBatchListener listener;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        listener = new SqsStockBatchListener(stockService, null, null, null, new IngestMetrics(meterRegistry));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onMessages_upsertsWholeBatchInOneCallAndAcknowledgesIt() {
+        // Given
+        List<Message<StockUpdateMessage>> batch = List.of(
+                message("AAPL", "195.00"),
+                message("MSFT", "400.00"));
+
+        // When
+        listener.onMessages(batch, acknowledgement);
+
+        // Then
+        ArgumentCaptor<Collection<Stock>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(stockService).upsertAll(captor.capture());
+        assertThat(captor.getValue()).extracting(Stock::getSymbol).containsExactly("AAPL", "MSFT");
+        verify(acknowledgement).acknowledge(batch);
+    }
+
+    @Test
+    void onMessages_skipsInvalidPayloadWithoutAcknowledgingIt() {
+        // Given
+        Message<StockUpdateMessage> valid = message("AAPL", "195.00");
+        Message<StockUpdateMessage> invalid = MessageBuilder
+                .withPayload(new StockUpdateMessage(" ", (Price) null, null)).build();
+
+        // When
+        listener.onMessages(List.of(valid, invalid), acknowledgement);
+
+        // Then
+        verify(acknowledgement).acknowledge(List.of(valid));
+        assertThat(count("invalid")).isEqualTo(1.0);
+        assertThat(count("received")).isEqualTo(1.0);
+    }
+
+    @Test
+    void onMessages_fallsBackToSingleMessages_whenBatchFails() {
+        // Given
+        Message<StockUpdateMessage> good = message("AAPL", "195.00");
+        Message<StockUpdateMessage> bad = message("TOO-LONG-SYMBOL", "1.00");
+        when(stockService.upsertAll(anyCollection()))
+                .thenThrow(new IllegalStateException("batch failed"))
+                .thenReturn(List.of())
+                .thenThrow(new IllegalStateException("bad row"));
+
+        // When
+        listener.onMessages(List.of(good, bad), acknowledgement);
+
+        // Then - 1 intento de lote + 2 reintentos individuales; solo se confirma el bueno
+        verify(stockService, times(3)).upsertAll(anyCollection());
+        verify(acknowledgement).acknowledge(argThat((Collection<Message<StockUpdateMessage>> acked) ->
+                acked.size() == 1 && acked.contains(good)));
+        assertThat(count("failed")).isEqualTo(1.0);
+    }
+
+    @Test
+    void onMessages_usesCurrentTime_whenUpdatedAtIsNull() {
+        // Given
+        Message<StockUpdateMessage> msg = MessageBuilder
+                .withPayload(new StockUpdateMessage("MSFT", new BigDecimal("400.00"), null)).build();
+
+        // When
+        listener.onMessages(List.of(msg), acknowledgement);
+
+        // Then
+        verify(stockService).upsertAll(argThat((Collection<Stock> stocks) ->
+                stocks.iterator().next().getUpdatedAt() != null));
+    }
+
+    @Test
+    void onMessages_doesNothing_whenAllInvalid() {
+        // When
+        listener.onMessages(List.of(MessageBuilder
+                .withPayload(new StockUpdateMessage(null, BigDecimal.ONE, null)).build()), acknowledgement);
+
+        // Then
+        verify(stockService, never()).upsertAll(any());
+        verify(acknowledgement, never()).acknowledge(anyCollection());
+    }
+
+    @Test
+    void onMessages_acknowledgesOnlyCommittedMessages_whenCoalescingEnabled() {
+        // Given
+        SqsStockBatchListener coalescing = new SqsStockBatchListener(stockService, coalescer, null, null,
+                new IngestMetrics(meterRegistry));
+        Message<StockUpdateMessage> committed = message("AAPL", "195.00");
+        Message<StockUpdateMessage> failed = message("MSFT", "400.00");
+        when(coalescer.submit(committed.getPayload())).thenReturn(CompletableFuture.completedFuture(null));
+        when(coalescer.submit(failed.getPayload()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("flush failed")));
+        when(acknowledgement.acknowledgeAsync(anyCollection())).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        CompletableFuture<Void> result = coalescing.onMessages(List.of(committed, failed), acknowledgement);
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(acknowledgement).acknowledgeAsync(List.of(committed));
+        verify(stockService, never()).upsertAll(any());
+        assertThat(count("failed")).isEqualTo(1.0);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get(IngestMetrics.MESSAGES).tag("result", result).counter().count();
+    }
+
+    private static Message<StockUpdateMessage> message(String symbol, String price) {
+        return MessageBuilder
+                .withPayload(new StockUpdateMessage(symbol, new BigDecimal(price), Instant.now()))
+                .build();
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.stocks.messaging;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,19 +17,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.example.stocks.domain.Price;
+import com.example.stocks.service.CandleService;
+import com.example.stocks.service.IngestMetrics;
 import com.example.stocks.service.StockService;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 class SqsStockListenerTest {
 
     @Mock
     private StockService stockService;
 
+    @Mock
+    private StockUpdateCoalescer coalescer;
+
+    @Mock
+    private CandleService candles;
+
     private SqsStockListener listener;
 
     @BeforeEach
     void setUp() {
-        listener = new SqsStockListener(stockService);
+        listener = new SqsStockListener(stockService, null, null, null, new IngestMetrics(new SimpleMeterRegistry()));
     }
 
     @Test
@@ -39,7 +53,7 @@ class SqsStockListenerTest {
         listener.onMessage(message);
 
         // Then
-        verify(stockService).upsertFromMessage(eq("AAPL"), eq(new BigDecimal("195.00")), eq(now));
+        verify(stockService).upsertFromMessage(eq("AAPL"), eq(Price.parse("195.00")), eq(now));
     }
 
     @Test
@@ -51,7 +65,7 @@ class SqsStockListenerTest {
         listener.onMessage(message);
 
         // Then
-        verify(stockService).upsertFromMessage(eq("MSFT"), eq(new BigDecimal("400.00")), any(Instant.class));
+        verify(stockService).upsertFromMessage(eq("MSFT"), eq(Price.parse("400.00")), any(Instant.class));
     }
 
     @Test
@@ -62,4 +76,39 @@ class SqsStockListenerTest {
         // Then
         verify(stockService, never()).upsertFromMessage(any(), any(), any());
     }
+
+    @Test
+    void onMessage_completesOnlyAfterCoalescerFlush_whenCoalescingEnabled() {
+        // Given
+        SqsStockListener coalescing = new SqsStockListener(stockService, coalescer, null, null,
+                new IngestMetrics(new SimpleMeterRegistry()));
+        StockUpdateMessage message = new StockUpdateMessage("AAPL", new BigDecimal("195.00"), Instant.now());
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        when(coalescer.submit(message)).thenReturn(flushed);
+
+        // When
+        CompletableFuture<Void> result = coalescing.onMessage(message);
+
+        // Then
+        assertThat(result).isNotDone();
+        flushed.complete(null);
+        assertThat(result).isCompleted();
+        verify(stockService, never()).upsertFromMessage(any(), any(), any());
+    }
+
+    @Test
+    void onMessage_recordsTickInCandles_beforeCoalescing() {
+        // Given
+        SqsStockListener withCandles = new SqsStockListener(stockService, coalescer, candles, null,
+                new IngestMetrics(new SimpleMeterRegistry()));
+        Instant now = Instant.now();
+        StockUpdateMessage message = new StockUpdateMessage("AAPL", new BigDecimal("195.00"), now);
+        when(coalescer.submit(message)).thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        withCandles.onMessage(message);
+
+        // Then
+        verify(candles).record("AAPL", Price.parse("195.00"), now);
+    }
 }
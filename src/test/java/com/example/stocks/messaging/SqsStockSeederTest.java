@@ -2,6 +2,8 @@ package com.example.stocks.messaging;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -18,6 +20,9 @@ class SqsStockSeederTest {
     @Mock
     private SqsTemplate sqsTemplate;
 
+    @Mock
+    private SqsLoadGenerator loadGenerator;
+
     @Test
     void run_sendsAllSeedMessages() throws Exception {
         // Given
@@ -30,6 +35,19 @@ class SqsStockSeederTest {
         verify(sqsTemplate, times(5)).send(any());
     }
 
+    @Test
+    void run_startsLoadGeneratorInsteadOfSeedMessages_whenLoadModeEnabled() throws Exception {
+        // Given
+        SqsStockSeeder seeder = new SqsStockSeeder(sqsTemplate, "test-queue", loadGenerator);
+
+        // When
+        seeder.run();
+
+        // Then
+        verify(loadGenerator, timeout(1000)).run();
+        verify(sqsTemplate, never()).send(any());
+    }
+
     @Test
     void constructor_throwsException_whenQueueNameIsNull() {
         // When/Then
@@ -0,0 +1,129 @@
+package com.example.stocks.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.stocks.domain.Stock;
+import com.example.stocks.service.StockService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class StockUpdateCoalescerTest {
+
+    @Mock
+    private StockService stockService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private StockUpdateCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new StockUpdateCoalescer(stockService, meterRegistry, 3, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        coalescer.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_collapsesBurstForOneSymbolIntoOneWrite() {
+        // Given
+        Instant base = Instant.parse("2025-01-01T12:00:00Z");
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(coalescer.submit(new StockUpdateMessage("aapl", BigDecimal.valueOf(i), base.plusMillis(i))));
+        }
+        assertThat(futures).noneMatch(CompletableFuture::isDone);
+
+        // When
+        coalescer.flush();
+
+        // Then
+        ArgumentCaptor<Collection<Stock>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(stockService).upsertAll(captor.capture());
+        assertThat(captor.getValue()).singleElement().satisfies(st -> {
+            assertThat(st.getSymbol()).isEqualTo("AAPL");
+            assertThat(st.getPrice()).isEqualByComparingTo("999");
+        });
+        assertThat(futures).allMatch(f -> f.isDone() && !f.isCompletedExceptionally());
+        assertThat(meterRegistry.summary("stocks.ingest.coalescing.ratio").mean()).isEqualTo(1000.0);
+        assertThat(meterRegistry.summary("stocks.ingest.flush.size").totalAmount()).isEqualTo(1.0);
+        assertThat(meterRegistry.timer("stocks.ingest.flush.latency").count()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void submit_keepsNewestUpdate_whenOlderTickArrivesLater() {
+        // Given
+        Instant newer = Instant.parse("2025-01-01T12:00:01Z");
+        coalescer.submit(new StockUpdateMessage("MSFT", new BigDecimal("2.00"), newer));
+        coalescer.submit(new StockUpdateMessage("MSFT", new BigDecimal("1.00"), newer.minusSeconds(1)));
+
+        // When
+        coalescer.flush();
+
+        // Then
+        ArgumentCaptor<Collection<Stock>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(stockService).upsertAll(captor.capture());
+        assertThat(captor.getValue()).singleElement()
+                .satisfies(st -> assertThat(st.getPrice()).isEqualByComparingTo("2.00"));
+    }
+
+    @Test
+    void submit_flushesWhenSizeThresholdIsReached() {
+        // When
+        coalescer.submit(new StockUpdateMessage("A", BigDecimal.ONE, Instant.now()));
+        coalescer.submit(new StockUpdateMessage("B", BigDecimal.ONE, Instant.now()));
+        CompletableFuture<Void> third = coalescer.submit(new StockUpdateMessage("C", BigDecimal.ONE, Instant.now()));
+
+        // Then
+        verify(stockService, timeout(2000)).upsertAll(argThat((Collection<Stock> c) -> c.size() == 3));
+        assertThat(third).succeedsWithin(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void flush_failsOnlyTheUpdateThatCannotBePersisted() {
+        // Given
+        when(stockService.upsertAll(anyCollection())).thenAnswer(inv -> {
+            Collection<Stock> updates = inv.getArgument(0);
+            if (updates.stream().anyMatch(st -> st.getSymbol().equals("BAD"))) {
+                throw new IllegalStateException("constraint violation");
+            }
+            return List.copyOf(updates);
+        });
+        CompletableFuture<Void> good = coalescer.submit(new StockUpdateMessage("GOOD", BigDecimal.ONE, Instant.now()));
+        CompletableFuture<Void> bad = coalescer.submit(new StockUpdateMessage("BAD", BigDecimal.ONE, Instant.now()));
+
+        // When
+        coalescer.flush();
+
+        // Then
+        assertThat(good).isCompleted().isNotCompletedExceptionally();
+        assertThat(bad).isCompletedExceptionally();
+    }
+}
@@ -7,6 +7,8 @@ import java.time.Instant;
 
 import org.junit.jupiter.api.Test;
 
+import com.example.stocks.domain.Price;
+
 class StockUpdateMessageTest {
 
     @Test
@@ -21,7 +23,7 @@ class StockUpdateMessageTest {
 
         // Then
         assertThat(message.symbol()).isEqualTo(symbol);
-        assertThat(message.price()).isEqualByComparingTo(price);
+        assertThat(message.price()).isEqualTo(Price.of(price));
         assertThat(message.updatedAt()).isEqualTo(now);
     }
 
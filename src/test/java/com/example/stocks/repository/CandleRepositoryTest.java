@@ -0,0 +1,106 @@
+package com.example.stocks.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import com.example.stocks.domain.Candle;
+import com.example.stocks.domain.CandleInterval;
+import com.example.stocks.domain.Price;
+
+@ExtendWith(MockitoExtension.class)
+class CandleRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    private CandleRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new CandleRepository(jdbc);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void upsertAll_mergesWithStoredCandleInOneJdbcBatch() throws Exception {
+        // Given
+        Instant start = Instant.parse("2025-01-01T12:00:00Z");
+        Candle candle = new Candle("AAPL", CandleInterval.M1, start, Price.parse("100"), Price.parse("105"),
+                Price.parse("95"), Price.parse("101"), 4, start.plusSeconds(1), start.plusSeconds(50));
+        List<Candle> candles = List.of(candle);
+
+        // When
+        repository.upsertAll(candles);
+
+        // Then
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Candle>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbc).batchUpdate(eq(CandleRepository.UPSERT), eq(candles), eq(1), setter.capture());
+        assertThat(CandleRepository.UPSERT)
+                .contains("GREATEST(c.high, EXCLUDED.high)")
+                .contains("tick_count = c.tick_count + EXCLUDED.tick_count");
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, candle);
+        verify(ps).setString(2, "1m");
+        verify(ps).setObject(3, OffsetDateTime.ofInstant(start, ZoneOffset.UTC));
+        verify(ps).setLong(5, 1_050_000L);
+        verify(ps).setLong(8, 4L);
+    }
+
+    @Test
+    void merge_combinesPartialCandlesOfTheSameInterval() {
+        // Given
+        Instant start = Instant.parse("2025-01-01T12:00:00Z");
+        Candle a = new Candle("AAPL", CandleInterval.M1, start, Price.parse("100"), Price.parse("105"),
+                Price.parse("99"), Price.parse("104"), 2, start.plusSeconds(10), start.plusSeconds(20));
+        Candle b = new Candle("AAPL", CandleInterval.M1, start, Price.parse("98"), Price.parse("101"),
+                Price.parse("97"), Price.parse("100"), 3, start.plusSeconds(5), start.plusSeconds(30));
+
+        // When
+        Candle merged = a.merge(b);
+
+        // Then
+        assertThat(merged.open()).isEqualTo(Price.parse("98"));
+        assertThat(merged.high()).isEqualTo(Price.parse("105"));
+        assertThat(merged.low()).isEqualTo(Price.parse("97"));
+        assertThat(merged.close()).isEqualTo(Price.parse("100"));
+        assertThat(merged.count()).isEqualTo(5);
+        assertThat(merged.firstAt()).isEqualTo(start.plusSeconds(5));
+        assertThat(merged.lastAt()).isEqualTo(start.plusSeconds(30));
+    }
+
+    @Test
+    void createPartition_movesCandlesOfThatDayOutOfDefaultPartition() {
+        // When
+        repository.createPartition(LocalDate.of(2025, 1, 31));
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc).execute(sql.capture());
+        assertThat(sql.getValue())
+                .contains("IF to_regclass('stock_candles_20250131') IS NULL")
+                .contains("DELETE FROM stock_candles_default"
+                        + " WHERE start_at >= '2025-01-31 00:00:00+00' AND start_at < '2025-02-01 00:00:00+00'")
+                .contains("RETURNING symbol, interval_code, start_at, open, high, low, close, tick_count, first_at, last_at")
+                .contains("ATTACH PARTITION stock_candles_20250131"
+                        + " FOR VALUES FROM ('2025-01-31 00:00:00+00') TO ('2025-02-01 00:00:00+00')");
+    }
+}
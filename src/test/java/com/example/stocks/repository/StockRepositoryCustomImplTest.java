@@ -0,0 +1,160 @@
+package com.example.stocks.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.StockSummary;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+@ExtendWith(MockitoExtension.class)
+class StockRepositoryCustomImplTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private StockRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new StockRepositoryCustomImpl(jdbc, entityManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void upsertAll_sendsOneMultiRowInsertOnConflictStatement() throws Exception {
+        // Given
+        Instant now = Instant.now();
+        when(jdbc.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(List.of("AAPL", "MSFT"));
+
+        // When
+        List<Stock> written = repository.upsertAll(List.of(
+                new Stock("AAPL", new BigDecimal("195.00"), now),
+                new Stock("MSFT", new BigDecimal("400.00"), now)));
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<PreparedStatementSetter> setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+        verify(jdbc).query(sql.capture(), setter.capture(), any(RowMapper.class));
+        assertThat(sql.getValue())
+                .startsWith("INSERT INTO stocks (symbol, price, updated_at) VALUES (?, ? * 0.0001, ?), (?, ? * 0.0001, ?)")
+                .contains("ON CONFLICT (symbol) DO UPDATE")
+                .contains("WHERE stocks.updated_at < EXCLUDED.updated_at");
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps);
+        verify(ps).setString(1, "AAPL");
+        verify(ps).setLong(2, 1_950_000L);
+        verify(ps).setString(4, "MSFT");
+        verify(ps).setLong(5, 4_000_000L);
+        assertThat(written).extracting(Stock::getSymbol).containsExactly("AAPL", "MSFT");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void upsertAll_keepsOnlyNewestUpdatePerSymbol() {
+        // Given
+        Instant older = Instant.parse("2025-01-01T12:00:00Z");
+        Instant newer = older.plusSeconds(1);
+        when(jdbc.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(List.of("AAPL"));
+
+        // When
+        List<Stock> written = repository.upsertAll(List.of(
+                new Stock("AAPL", new BigDecimal("2.00"), newer),
+                new Stock("AAPL", new BigDecimal("1.00"), older)));
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc).query(sql.capture(), any(PreparedStatementSetter.class), any(RowMapper.class));
+        assertThat(sql.getValue()).contains("VALUES (?, ? * 0.0001, ?) ON CONFLICT");
+        assertThat(written).singleElement()
+                .satisfies(st -> assertThat(st.getPrice()).isEqualByComparingTo("2.00"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void upsertAll_omitsStaleRowsNotReturnedByTheDatabase() {
+        // Given
+        Instant now = Instant.now();
+        when(jdbc.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(List.of("MSFT"));
+
+        // When
+        List<Stock> written = repository.upsertAll(List.of(
+                new Stock("AAPL", BigDecimal.ONE, now),
+                new Stock("MSFT", BigDecimal.TEN, now)));
+
+        // Then
+        assertThat(written).extracting(Stock::getSymbol).containsExactly("MSFT");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void upsertAll_splitsLargeBatchesIntoChunks() {
+        // Given
+        Instant now = Instant.now();
+        List<Stock> stocks = new ArrayList<>();
+        for (int i = 0; i < StockRepositoryCustomImpl.MAX_ROWS_PER_STATEMENT + 1; i++) {
+            stocks.add(new Stock("S" + i, BigDecimal.ONE, now));
+        }
+        when(jdbc.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                .thenReturn(List.of());
+
+        // When
+        repository.upsertAll(stocks);
+
+        // Then
+        verify(jdbc, times(2)).query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void forEachOrderedBySymbol_streamsProjectionsWithFetchSize() {
+        // Given
+        StockSummary aapl = new StockSummary("AAPL", Price.parse("195.00"), Instant.now());
+        StockSummary msft = new StockSummary("MSFT", Price.parse("400.00"), Instant.now());
+        TypedQuery<StockSummary> query = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(StockSummary.class))).thenReturn(query);
+        when(query.setHint(anyString(), any())).thenReturn(query);
+        when(query.getResultStream()).thenReturn(Stream.of(aapl, msft));
+        List<StockSummary> seen = new ArrayList<>();
+
+        // When
+        repository.forEachOrderedBySymbol(500, seen::add);
+
+        // Then
+        assertThat(seen).containsExactly(aapl, msft);
+        verify(query).setHint(HibernateHints.HINT_FETCH_SIZE, 500);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.stocks.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import com.example.stocks.domain.Stock;
+
+@ExtendWith(MockitoExtension.class)
+class StockTickRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbc;
+
+    private StockTickRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new StockTickRepository(jdbc);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void appendAll_insertsTicksInOneJdbcBatch() throws Exception {
+        // Given
+        Instant at = Instant.parse("2025-01-01T12:00:00Z");
+        List<Stock> ticks = List.of(
+                new Stock("AAPL", new BigDecimal("195.12"), at),
+                new Stock("AAPL", new BigDecimal("195.13"), at.plusMillis(1)));
+
+        // When
+        repository.appendAll(ticks);
+
+        // Then
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<Stock>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbc).batchUpdate(eq(StockTickRepository.INSERT), eq(ticks), eq(2), setter.capture());
+        assertThat(StockTickRepository.INSERT).contains("ON CONFLICT DO NOTHING");
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, ticks.get(0));
+        verify(ps).setString(1, "AAPL");
+        verify(ps).setLong(2, 1_951_200L);
+        verify(ps).setObject(3, OffsetDateTime.ofInstant(at, ZoneOffset.UTC));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void appendAll_skipsEmptyBatch() {
+        // When
+        repository.appendAll(List.of());
+
+        // Then
+        verify(jdbc, never()).batchUpdate(anyString(), any(Collection.class), any(Integer.class),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void createPartition_coversOneUtcDay() {
+        // When
+        repository.createPartition(LocalDate.of(2025, 1, 31));
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbc).execute(sql.capture());
+        assertThat(sql.getValue())
+                .contains("IF to_regclass('stock_ticks_20250131') IS NULL")
+                .contains("DELETE FROM stock_ticks_default"
+                        + " WHERE updated_at >= '2025-01-31 00:00:00+00' AND updated_at < '2025-02-01 00:00:00+00'")
+                .contains("ATTACH PARTITION stock_ticks_20250131"
+                        + " FOR VALUES FROM ('2025-01-31 00:00:00+00') TO ('2025-02-01 00:00:00+00')");
+    }
+
+    @Test
+    void findPartitionDays_ignoresDefaultPartition() {
+        // Given
+        when(jdbc.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("stock_ticks_20250101", "stock_ticks_default", "stock_ticks_20250102"));
+
+        // When
+        List<LocalDate> days = repository.findPartitionDays();
+
+        // Then
+        assertThat(days).containsExactly(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 2));
+    }
+}
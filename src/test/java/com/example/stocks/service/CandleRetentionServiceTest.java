@@ -0,0 +1,63 @@
+package com.example.stocks.service;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.stocks.repository.CandleRepository;
+
+@ExtendWith(MockitoExtension.class)
+class CandleRetentionServiceTest {
+
+    @Mock
+    private CandleRepository repository;
+
+    private CandleRetentionService service;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2025-01-10T08:00:00Z"), ZoneOffset.UTC);
+        service = new CandleRetentionService(repository, Duration.ofDays(3), 1, clock);
+    }
+
+    @Test
+    void init_createsSchemaAndPartitionsBeforeTheFirstFlush() {
+        // When
+        service.init();
+
+        // Then
+        InOrder order = inOrder(repository);
+        order.verify(repository).createSchema();
+        order.verify(repository).createPartition(LocalDate.of(2025, 1, 10));
+        order.verify(repository).createPartition(LocalDate.of(2025, 1, 11));
+    }
+
+    @Test
+    void maintain_dropsDaysOutsideCandleRetention() {
+        // Given
+        when(repository.findPartitionDays()).thenReturn(List.of(LocalDate.of(2025, 1, 6), LocalDate.of(2025, 1, 7)));
+
+        // When
+        service.maintain();
+
+        // Then
+        verify(repository).dropPartition(LocalDate.of(2025, 1, 6));
+        verify(repository, never()).dropPartition(LocalDate.of(2025, 1, 7));
+        verify(repository).deleteFromDefaultPartitionBefore(Instant.parse("2025-01-07T00:00:00Z"));
+    }
+}
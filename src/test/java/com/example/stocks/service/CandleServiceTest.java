@@ -0,0 +1,213 @@
+package com.example.stocks.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.example.stocks.domain.Candle;
+import com.example.stocks.domain.CandleInterval;
+import com.example.stocks.domain.Price;
+import com.example.stocks.repository.CandleRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class CandleServiceTest {
+
+    private static final Instant T0 = Instant.parse("2025-01-01T12:00:00Z");
+
+    @Mock
+    private CandleRepository repository;
+
+    private CandleService service;
+
+    @BeforeEach
+    void setUp() {
+        service = serviceAt(T0.plusMillis(500), 100);
+    }
+
+    private CandleService serviceAt(Instant now, int maxSymbols) {
+        return new CandleService(repository, new SimpleMeterRegistry(), maxSymbols, 1000, Duration.ofSeconds(2),
+                Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    @Test
+    void record_buildsOpenCandleForEachInterval() {
+        // When
+        service.record("aapl", Price.parse("100"), T0);
+        service.record("AAPL", Price.parse("105"), T0.plusMillis(100));
+        service.record("AAPL", Price.parse("95"), T0.plusMillis(200));
+        service.record("AAPL", Price.parse("101"), T0.plusMillis(300));
+
+        // Then
+        Candle candle = service.current("AAPL", CandleInterval.M1).orElseThrow();
+        assertThat(candle.start()).isEqualTo(T0);
+        assertThat(candle.open()).isEqualTo(Price.parse("100"));
+        assertThat(candle.high()).isEqualTo(Price.parse("105"));
+        assertThat(candle.low()).isEqualTo(Price.parse("95"));
+        assertThat(candle.close()).isEqualTo(Price.parse("101"));
+        assertThat(candle.count()).isEqualTo(4);
+        assertThat(service.current("AAPL", CandleInterval.S1)).isPresent();
+        assertThat(service.current("AAPL", CandleInterval.M5)).isPresent();
+    }
+
+    @Test
+    void record_keepsOpenAndCloseByTimestamp_whenTicksArriveOutOfOrder() {
+        // When
+        service.record("AAPL", Price.parse("101"), T0.plusMillis(300));
+        service.record("AAPL", Price.parse("100"), T0);
+
+        // Then
+        Candle candle = service.current("AAPL", CandleInterval.S1).orElseThrow();
+        assertThat(candle.open()).isEqualTo(Price.parse("100"));
+        assertThat(candle.close()).isEqualTo(Price.parse("101"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_persistsCandlesClosedByLaterTick() {
+        // Given
+        service.record("AAPL", Price.parse("100"), T0);
+        service.record("AAPL", Price.parse("101"), T0.plusSeconds(1));
+
+        // When
+        service.flush();
+
+        // Then - solo se ha cerrado la vela de 1s; 1m y 5m siguen abiertas
+        ArgumentCaptor<Collection<Candle>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).upsertAll(captor.capture());
+        assertThat(captor.getValue()).singleElement().satisfies(c -> {
+            assertThat(c.interval()).isEqualTo(CandleInterval.S1);
+            assertThat(c.start()).isEqualTo(T0);
+            assertThat(c.count()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_mergesLateTicksForTheSameCandle() {
+        // Given
+        service.record("AAPL", Price.parse("100"), T0.plusSeconds(2));
+        service.record("AAPL", Price.parse("90"), T0);
+        service.record("AAPL", Price.parse("110"), T0.plusMillis(10));
+
+        // When
+        service.flush();
+
+        // Then
+        ArgumentCaptor<Collection<Candle>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).upsertAll(captor.capture());
+        assertThat(captor.getValue()).singleElement().satisfies(c -> {
+            assertThat(c.start()).isEqualTo(T0);
+            assertThat(c.open()).isEqualTo(Price.parse("90"));
+            assertThat(c.close()).isEqualTo(Price.parse("110"));
+            assertThat(c.count()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void closeExpired_closesCandlesPastTheGracePeriod() {
+        // Given
+        CandleService later = serviceAt(T0.plusSeconds(65), 100);
+        later.record("AAPL", Price.parse("100"), T0);
+
+        // When
+        later.closeExpired();
+        later.flush();
+
+        // Then
+        ArgumentCaptor<Collection<Candle>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(repository).upsertAll(captor.capture());
+        assertThat(captor.getValue()).extracting(Candle::interval)
+                .containsExactlyInAnyOrder(CandleInterval.S1, CandleInterval.M1);
+        assertThat(later.current("AAPL", CandleInterval.M1)).isEmpty();
+        assertThat(later.current("AAPL", CandleInterval.M5)).isPresent();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_requeuesCandles_whenWriteFails() {
+        // Given
+        List<Collection<Candle>> written = new ArrayList<>();
+        doThrow(new DataAccessResourceFailureException("down"))
+                .doAnswer(inv -> written.add(new ArrayList<>(inv.getArgument(0))))
+                .when(repository).upsertAll(any());
+        service.record("AAPL", Price.parse("100"), T0);
+        service.record("AAPL", Price.parse("101"), T0.plusSeconds(1));
+
+        // When
+        service.flush();
+        service.flush();
+
+        // Then
+        verify(repository, times(2)).upsertAll(any());
+        assertThat(written).singleElement().satisfies(c -> assertThat(c).hasSize(1));
+    }
+
+    @Test
+    void record_ignoresNewSymbols_beyondMaxSymbols() {
+        // Given
+        CandleService limited = serviceAt(T0, 1);
+
+        // When
+        limited.record("AAPL", Price.parse("100"), T0);
+        limited.record("MSFT", Price.parse("400"), T0);
+
+        // Then
+        assertThat(limited.current("AAPL", CandleInterval.M1)).isPresent();
+        assertThat(limited.current("MSFT", CandleInterval.M1)).isEmpty();
+    }
+
+    @Test
+    void closeExpired_freesSlotOfIdleSymbol_forNewSymbols() {
+        // Given - a los 10 minutos ya se han cerrado las tres velas de AAPL
+        Instant now = T0.plusSeconds(600);
+        CandleService limited = serviceAt(now, 1);
+        limited.record("AAPL", Price.parse("100"), T0);
+
+        // When
+        limited.closeExpired();
+        limited.record("MSFT", Price.parse("400"), now);
+
+        // Then
+        assertThat(limited.current("MSFT", CandleInterval.M1)).isPresent();
+        assertThat(limited.current("AAPL", CandleInterval.M5)).isEmpty();
+    }
+
+    @Test
+    void flush_doesNothing_whenNoCandleClosed() {
+        // When
+        service.flush();
+
+        // Then
+        verify(repository, never()).upsertAll(any());
+    }
+
+    @Test
+    void intervalFromCode_rejectsUnknownCodes() {
+        assertThat(CandleInterval.fromCode("5m")).contains(CandleInterval.M5);
+        assertThat(CandleInterval.fromCode("2h")).isEmpty();
+        assertThatThrownBy(() -> CandleInterval.valueOf("2h")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.stocks.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IngestMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final IngestMetrics metrics = new IngestMetrics(registry);
+
+    @Test
+    void received_countsMessageAndRecordsLagSinceUpdatedAt() {
+        // When
+        metrics.received(Instant.now().minusSeconds(2));
+        metrics.received(null);
+
+        // Then
+        assertThat(registry.get(IngestMetrics.MESSAGES).tag("result", "received").counter().count()).isEqualTo(2.0);
+        Timer lag = registry.get(IngestMetrics.RECEIVE_LAG).timer();
+        assertThat(lag.count()).isEqualTo(1);
+        assertThat(lag.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(2000);
+    }
+
+    @Test
+    void visible_recordsClockSkewAsZero() {
+        // When - un productor con el reloj adelantado
+        metrics.visible(Instant.now().plusSeconds(5));
+
+        // Then
+        Timer lag = registry.get(IngestMetrics.END_TO_END_LAG).timer();
+        assertThat(lag.count()).isEqualTo(1);
+        assertThat(lag.totalTime(TimeUnit.NANOSECONDS)).isZero();
+    }
+
+    @Test
+    void staleInDb_ignoresZero() {
+        // When
+        metrics.staleInDb(0);
+        metrics.staleInDb(3);
+        metrics.staleInCache();
+
+        // Then
+        assertThat(registry.get(IngestMetrics.STALE).tag("stage", "db").counter().count()).isEqualTo(3.0);
+        assertThat(registry.get(IngestMetrics.STALE).tag("stage", "cache").counter().count()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.stocks.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+
+import com.example.stocks.domain.Price;
+
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveStockCacheServiceTest {
+
+    private static final Instant AT = Instant.parse("2025-01-01T12:00:00Z");
+    private static final StockCacheService.CachedStock AAPL = new StockCacheService.CachedStock(Price.parse("195.00"), AT);
+
+    @Mock
+    private StockCacheService cacheService;
+
+    @Mock
+    private ReactiveStringRedisTemplate redis;
+
+    @Mock
+    private ReactiveValueOperations<String, String> values;
+
+    @InjectMocks
+    private ReactiveStockCacheService cache;
+
+    @Test
+    void getEntry_servesLocalHitWithoutCallingRedis() {
+        // Given
+        when(cacheService.localEntry("AAPL")).thenReturn(AAPL);
+
+        // When / Then
+        StepVerifier.create(cache.getEntry("aapl")).expectNext(AAPL).verifyComplete();
+        verifyNoInteractions(redis);
+    }
+
+    @Test
+    void getEntry_decodesStringValueAndRecordsRemoteHit() {
+        // Given
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get("stock:AAPL")).thenReturn(Mono.just(StockCacheService.encodeTimestamp(AT) + ":195.00"));
+
+        // When / Then
+        StepVerifier.create(cache.getEntry("AAPL")).expectNext(AAPL).verifyComplete();
+        verify(cacheService).remoteEntry("AAPL", AAPL);
+    }
+
+    @Test
+    void getEntry_recordsRemoteMiss_whenKeyIsAbsent() {
+        // Given
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get("stock:AAPL")).thenReturn(Mono.empty());
+
+        // When / Then
+        StepVerifier.create(cache.getEntry("AAPL")).verifyComplete();
+        verify(cacheService).remoteEntry("AAPL", null);
+    }
+
+    @Test
+    void getEntries_readsOnlyLocalMissesWithOneMget() {
+        // Given
+        StockCacheService.CachedStock msft = new StockCacheService.CachedStock(Price.parse("400.00"), AT);
+        when(cacheService.localEntry("AAPL")).thenReturn(null);
+        when(cacheService.localEntry("MSFT")).thenReturn(msft);
+        when(cacheService.localEntry("NOPE")).thenReturn(null);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.multiGet(List.of("stock:AAPL", "stock:NOPE")))
+                .thenReturn(Mono.just(Arrays.asList(StockCacheService.encodeTimestamp(AT) + ":195.00", null)));
+
+        // When / Then
+        StepVerifier.create(cache.getEntries(List.of("aapl", "MSFT", "nope")))
+                .assertNext(found -> assertThat(found).containsOnlyKeys("AAPL", "MSFT").containsEntry("AAPL", AAPL))
+                .verifyComplete();
+        verify(cacheService).remoteEntry("AAPL", AAPL);
+        verify(cacheService).remoteEntry("NOPE", null);
+        verify(cacheService, never()).remoteEntry("MSFT", msft);
+    }
+
+    @Test
+    void collectionVersion_isEmpty_whenValueIsNotANumber() {
+        // Given
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get(StockCacheService.VERSION_KEY)).thenReturn(Mono.just("x"));
+
+        // When / Then
+        StepVerifier.create(cache.collectionVersion()).verifyComplete();
+    }
+
+    @Test
+    void collectionVersion_isEmpty_whenRedisIsDown() {
+        // Given
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get(StockCacheService.VERSION_KEY))
+                .thenReturn(Mono.error(new RedisConnectionFailureException("Redis caído")));
+
+        // When / Then
+        StepVerifier.create(cache.collectionVersion()).verifyComplete();
+    }
+
+    @Test
+    void collectionVersion_parsesCounter() {
+        // Given
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.get(StockCacheService.VERSION_KEY)).thenReturn(Mono.just("42"));
+
+        // When / Then
+        StepVerifier.create(cache.collectionVersion()).expectNext(42L).verifyComplete();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.stocks.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.StockSummary;
+import com.example.stocks.repository.ReactiveStockReader;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveStockServiceTest {
+
+    @Mock
+    private ReactiveStockCacheService cache;
+
+    @Mock
+    private StockCacheService cacheService;
+
+    @Mock
+    private ReactiveStockReader reader;
+
+    private ReactiveStockService service;
+
+    @BeforeEach
+    void setUp() {
+        // Relleno de la caché en el mismo hilo: los tests pueden verificarlo sin esperas
+        service = new ReactiveStockService(cache, cacheService, reader, Schedulers.immediate());
+    }
+
+    @Test
+    void getView_servesCacheHitWithoutTouchingTheDatabase() {
+        // Given
+        Instant at = Instant.parse("2025-01-01T12:00:00Z");
+        when(cache.getEntry("AAPL")).thenReturn(Mono.just(new StockCacheService.CachedStock(Price.parse("195.00"), at)));
+
+        // When / Then
+        StepVerifier.create(service.getView("aapl"))
+                .expectNext(new StockService.StockView("AAPL", Price.parse("195.00"), at, true))
+                .verifyComplete();
+        verify(reader, never()).findSummaryBySymbol(any());
+    }
+
+    @Test
+    void getView_readsMissFromDatabaseAndBackfillsCache() {
+        // Given
+        Instant at = Instant.parse("2025-01-01T12:00:00Z");
+        when(cache.getEntry("AAPL")).thenReturn(Mono.empty());
+        when(reader.findSummaryBySymbol("AAPL"))
+                .thenReturn(Mono.just(new StockSummary("AAPL", Price.parse("195.00"), at)));
+
+        // When / Then
+        StepVerifier.create(service.getView("AAPL"))
+                .expectNext(new StockService.StockView("AAPL", Price.parse("195.00"), at, false))
+                .verifyComplete();
+        verify(cacheService).putAll(Map.of("AAPL", new StockCacheService.CachedStock(Price.parse("195.00"), at)));
+    }
+
+    @Test
+    void getView_sharesOneDatabaseReadBetweenConcurrentMisses() {
+        // Given - la consulta no responde hasta que se emite en el sink
+        Sinks.One<StockSummary> row = Sinks.one();
+        AtomicInteger queries = new AtomicInteger();
+        when(cache.getEntry("AAPL")).thenReturn(Mono.empty());
+        when(reader.findSummaryBySymbol("AAPL")).thenReturn(Mono.defer(() -> {
+            queries.incrementAndGet();
+            return row.asMono();
+        }));
+
+        // When
+        Mono<List<StockService.StockView>> both = Flux.merge(service.getView("AAPL"), service.getView("AAPL"))
+                .collectList();
+        StepVerifier.create(both)
+                .then(() -> row.tryEmitValue(new StockSummary("AAPL", Price.parse("195.00"), Instant.now())))
+                .assertNext(views -> assertThat(views).hasSize(2))
+                .verifyComplete();
+
+        // Then
+        assertThat(queries).hasValue(1);
+        verify(cacheService, times(1)).putAll(anyMap());
+    }
+
+    @Test
+    void getView_readsAgain_afterPreviousLoadFinished() {
+        // Given
+        AtomicInteger queries = new AtomicInteger();
+        when(cache.getEntry("AAPL")).thenReturn(Mono.empty());
+        when(reader.findSummaryBySymbol("AAPL")).thenReturn(Mono.fromCallable(() -> {
+            queries.incrementAndGet();
+            return new StockSummary("AAPL", Price.parse("195.00"), Instant.now());
+        }));
+
+        // When
+        StepVerifier.create(service.getView("AAPL")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.getView("AAPL")).expectNextCount(1).verifyComplete();
+
+        // Then - la lectura terminada se quitó del mapa y no se sirve de nuevo
+        assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    void getViews_readsOnlyMissesFromDatabaseAndKeepsRequestOrder() {
+        // Given
+        Instant at = Instant.parse("2025-01-01T12:00:00Z");
+        when(cache.getEntries(any())).thenReturn(Mono.just(Map.of(
+                "MSFT", new StockCacheService.CachedStock(Price.parse("400.00"), at))));
+        when(reader.findSummariesBySymbolIn(List.of("AAPL", "NOPE")))
+                .thenReturn(Flux.just(new StockSummary("AAPL", Price.parse("195.00"), at)));
+
+        // When / Then
+        StepVerifier.create(service.getViews(List.of("aapl", "MSFT", "nope")))
+                .assertNext(views -> assertThat(views)
+                        .extracting(StockService.StockView::symbol, StockService.StockView::fromCache)
+                        .containsExactly(
+                                tuple("AAPL", false),
+                                tuple("MSFT", true)))
+                .verifyComplete();
+        verify(cacheService).putAll(Map.of("AAPL", new StockCacheService.CachedStock(Price.parse("195.00"), at)));
+    }
+
+    @Test
+    void findPage_upperCasesCursor() {
+        // Given
+        when(reader.findSummariesBySymbolGreaterThan("MSFT", 100)).thenReturn(Flux.empty());
+
+        // When / Then
+        StepVerifier.create(service.findPage("msft", 100)).verifyComplete();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.stocks.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.example.stocks.domain.Price;
+
+@ExtendWith(MockitoExtension.class)
+class StockCacheHashLayoutTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private final StockCacheHashLayout layout = new StockCacheHashLayout(16);
+
+    @Test
+    void encode_roundTripsPriceAndMicrosecondTimestampInSixteenBytes() {
+        // Given
+        StockCacheService.CachedStock entry = new StockCacheService.CachedStock(
+                Price.parse("195.1234"), Instant.parse("2025-01-01T12:00:00.123456Z"));
+
+        // When
+        byte[] encoded = StockCacheHashLayout.encode(entry);
+
+        // Then
+        assertThat(encoded).hasSize(StockCacheHashLayout.VALUE_SIZE);
+        assertThat(StockCacheHashLayout.decode(encoded)).isEqualTo(entry);
+    }
+
+    @Test
+    void decode_treatsMissingOrForeignValuesAsMiss() {
+        assertThat(StockCacheHashLayout.decode(null)).isNull();
+        assertThat(StockCacheHashLayout.decode("1735732800000000:195.5".getBytes(StandardCharsets.UTF_8))).isNull();
+    }
+
+    @Test
+    void key_isStableAndBoundedByBucketCount() {
+        // Then
+        assertThat(new String(layout.key("AAPL"), StandardCharsets.UTF_8))
+                .isEqualTo(StockCacheHashLayout.PREFIX + Math.floorMod("AAPL".hashCode(), 16));
+        assertThat(List.of("AAPL", "MSFT", "GOOG", "NVDA", "TSLA"))
+                .map(s -> new String(layout.key(s), StandardCharsets.UTF_8))
+                .allMatch(key -> Integer.parseInt(key.substring(StockCacheHashLayout.PREFIX.length())) < 16);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getAll_mapsOneHmgetReplyPerBucketBackToSymbols() {
+        // Given - un símbolo en cada uno de los 2 buckets; el segundo no está en Redis
+        StockCacheHashLayout twoBuckets = new StockCacheHashLayout(2);
+        String even = symbolInBucket(twoBuckets, 0);
+        String odd = symbolInBucket(twoBuckets, 1);
+        StockCacheService.CachedStock entry = new StockCacheService.CachedStock(
+                Price.parse("400"), Instant.parse("2025-01-01T12:00:00Z"));
+        when(redisTemplate.executePipelined(any(RedisCallback.class), any(RedisSerializer.class)))
+                .thenReturn(List.of(Arrays.asList(StockCacheHashLayout.encode(entry)), Arrays.asList((byte[]) null)));
+
+        // When
+        Map<String, StockCacheService.CachedStock> found = twoBuckets.getAll(redisTemplate, List.of(even, odd));
+
+        // Then
+        assertThat(found).containsExactly(Map.entry(even, entry));
+    }
+
+    private static String symbolInBucket(StockCacheHashLayout layout, int bucket) {
+        for (int i = 0; ; i++) {
+            String symbol = "S" + i;
+            if (new String(layout.key(symbol), StandardCharsets.UTF_8).equals(StockCacheHashLayout.PREFIX + bucket)) {
+                return symbol;
+            }
+        }
+    }
+}
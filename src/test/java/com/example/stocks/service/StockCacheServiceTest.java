@@ -1,23 +1,51 @@
 package com.example.stocks.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
+import com.example.stocks.domain.Price;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 class StockCacheServiceTest {
 
@@ -29,23 +57,69 @@ class StockCacheServiceTest {
 
     private StockCacheService cacheService;
 
+    private SimpleMeterRegistry meterRegistry;
+
     @BeforeEach
     void setUp() {
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        cacheService = new StockCacheService(redisTemplate);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService = new StockCacheService(redisTemplate, new SimpleMeterRegistry(), false, 0, Duration.ZERO);
     }
 
     @Test
-    void put_storesValueInRedis() {
+    void put_storesValueInRedisThroughLastWriteWinsScript() {
         // Given
         String symbol = "AAPL";
         BigDecimal price = new BigDecimal("195.50");
+        Instant updatedAt = Instant.parse("2025-01-01T12:00:00.000001Z");
+        when(redisTemplate.execute(same(StockCacheService.PUT_IF_NEWER), eq(List.of("stock:AAPL")),
+                eq("1735732800000001"), eq("195.5"), eq("600000"))).thenReturn(1L);
 
         // When
-        cacheService.put(symbol, price);
+        boolean written = cacheService.put(symbol, price, updatedAt);
 
         // Then
-        verify(valueOperations).set(eq("stock:AAPL"), eq("195.50"), eq(Duration.ofMinutes(10)));
+        assertThat(written).isTrue();
+    }
+
+    @Test
+    void put_returnsFalse_whenCachedValueIsNewer() {
+        // Given
+        when(redisTemplate.execute(same(StockCacheService.PUT_IF_NEWER), eq(List.of("stock:AAPL")),
+                anyString(), anyString(), anyString())).thenReturn(0L);
+
+        // When
+        boolean written = cacheService.put("AAPL", BigDecimal.ONE, Instant.EPOCH);
+
+        // Then
+        assertThat(written).isFalse();
+    }
+
+    @Test
+    void get_returnsPriceFromTimestampedValue() {
+        // Given
+        when(valueOperations.get("stock:AAPL")).thenReturn("1735732800000000:195.50");
+
+        // When
+        Optional<BigDecimal> result = cacheService.get("AAPL");
+
+        // Then
+        // Coma fija: el precio vuelve con la escala mínima
+        assertThat(result).hasValue(new BigDecimal("195.5"));
+    }
+
+    @Test
+    void getEntry_returnsPriceAndUpdatedAt() {
+        // Given
+        when(valueOperations.get("stock:AAPL")).thenReturn("1735732800000001:195.50");
+
+        // When
+        Optional<StockCacheService.CachedStock> result = cacheService.getEntry("AAPL");
+
+        // Then
+        assertThat(result).hasValueSatisfying(entry -> {
+            assertThat(entry.price()).isEqualTo(Price.parse("195.50"));
+            assertThat(entry.updatedAt()).isEqualTo(Instant.parse("2025-01-01T12:00:00.000001Z"));
+        });
     }
 
     @Test
@@ -95,9 +169,288 @@ class StockCacheServiceTest {
         BigDecimal price = new BigDecimal("195.50");
 
         // When
-        cacheService.put(symbol, price);
+        cacheService.put(symbol, price, Instant.parse("2025-01-01T12:00:00Z"));
+
+        // Then
+        verify(redisTemplate).execute(same(StockCacheService.PUT_IF_NEWER), eq(List.of("stock:AAPL")),
+                anyString(), eq("195.5"), anyString());
+    }
+
+    @Test
+    void get_servesRepeatedReadsFromLocalTier() {
+        // Given
+        StockCacheService localTier = localTierService();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("stock:AAPL")).thenReturn("1735732800000000:195.50");
+
+        // When
+        localTier.get("AAPL");
+        localTier.get("aapl");
 
         // Then
-        verify(valueOperations).set(eq("stock:AAPL"), anyString(), eq(Duration.ofMinutes(10)));
+        verify(valueOperations, times(1)).get("stock:AAPL");
+        assertThat(count("local", "hit")).isEqualTo(1);
+        assertThat(count("local", "miss")).isEqualTo(1);
+        assertThat(count("redis", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void get_countsMissOnBothTiers() {
+        // Given
+        StockCacheService localTier = localTierService();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        // When
+        assertThat(localTier.get("UNKNOWN")).isEmpty();
+
+        // Then
+        assertThat(count("local", "miss")).isEqualTo(1);
+        assertThat(count("redis", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void put_populatesLocalTierAndPublishesInvalidation() {
+        // Given
+        StockCacheService localTier = localTierService();
+        when(redisTemplate.execute(eq(StockCacheService.PUT_IF_NEWER), anyList(), any(), any(), any()))
+                .thenReturn(1L);
+
+        // When
+        localTier.put("MSFT", new BigDecimal("400.00"), Instant.now());
+
+        // Then
+        assertThat(localTier.get("MSFT")).hasValue(new BigDecimal("400"));
+        verify(redisTemplate).convertAndSend(eq(StockCacheService.INVALIDATION_CHANNEL), anyString());
+    }
+
+    @Test
+    void put_doesNotTouchLocalTier_whenRedisRejectsStaleValue() {
+        // Given
+        StockCacheService localTier = localTierService();
+        when(redisTemplate.execute(eq(StockCacheService.PUT_IF_NEWER), anyList(), any(), any(), any()))
+                .thenReturn(0L);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        // When
+        localTier.put("MSFT", BigDecimal.ONE, Instant.EPOCH);
+
+        // Then
+        assertThat(localTier.get("MSFT")).isEmpty();
+        verify(redisTemplate, times(0)).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void onMessage_invalidatesLocalEntry_whenPublishedByAnotherInstance() {
+        // Given
+        StockCacheService localTier = localTierService();
+        when(redisTemplate.execute(eq(StockCacheService.PUT_IF_NEWER), anyList(), any(), any(), any()))
+                .thenReturn(1L);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        localTier.put("TSLA", new BigDecimal("234.56"), Instant.now());
+
+        // When
+        localTier.onMessage(message("other-pod:TSLA"), null);
+
+        // Then - vuelve a Redis
+        assertThat(localTier.get("TSLA")).isEmpty();
+        verify(valueOperations).get("stock:TSLA");
+    }
+
+    @Test
+    void onMessage_ignoresOwnInvalidations() {
+        // Given
+        StockCacheService localTier = localTierService();
+        when(redisTemplate.execute(eq(StockCacheService.PUT_IF_NEWER), anyList(), any(), any(), any()))
+                .thenReturn(1L);
+        localTier.put("TSLA", new BigDecimal("234.56"), Instant.now());
+        ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(StockCacheService.INVALIDATION_CHANNEL), published.capture());
+
+        // When
+        localTier.onMessage(message(published.getValue()), null);
+
+        // Then
+        assertThat(localTier.get("TSLA")).hasValue(new BigDecimal("234.56"));
+    }
+
+    @Test
+    void getEntries_readsMissingSymbolsWithSingleMultiGet() {
+        // Given
+        StockCacheService localTier = localTierService();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("stock:AAPL")).thenReturn("1735732800000000:195.50");
+        localTier.get("AAPL");
+        when(valueOperations.multiGet(List.of("stock:MSFT", "stock:NOPE")))
+                .thenReturn(Arrays.asList("1735732800000000:400.00", null));
+
+        // When
+        Map<String, StockCacheService.CachedStock> result = localTier.getEntries(List.of("aapl", "MSFT", "NOPE"));
+
+        // Then - AAPL sale de la L1; MSFT y NOPE en un único MGET
+        assertThat(result).containsOnlyKeys("AAPL", "MSFT");
+        assertThat(result.get("MSFT").price()).isEqualTo(Price.parse("400.00"));
+        verify(valueOperations, times(1)).multiGet(anyList());
+        assertThat(count("local", "hit")).isEqualTo(1);
+        assertThat(count("redis", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void putAll_writesAllEntriesInOnePipeline() {
+        // Given
+        StockCacheService localTier = localTierService();
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(1L, 0L));
+        Instant now = Instant.now();
+        Map<String, StockCacheService.CachedStock> entries = new LinkedHashMap<>();
+        entries.put("AAPL", new StockCacheService.CachedStock(Price.parse("195.50"), now));
+        entries.put("MSFT", new StockCacheService.CachedStock(Price.parse("400.00"), now));
+
+        // When
+        int written = localTier.putAll(entries);
+
+        // Then - solo la entrada escrita en Redis pasa a la L1
+        assertThat(written).isEqualTo(1);
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+        assertThat(localTier.getEntries(List.of("AAPL"))).containsKey("AAPL");
+        verify(redisTemplate, times(0)).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void preload_fillsLocalTierWithEveryEntry_keepingTheNewest() {
+        // Given - Redis ya tenía los dos precios; la L1 tiene uno de AAPL más reciente
+        StockCacheService localTier = localTierService();
+        Instant loadedAt = Instant.parse("2025-01-01T12:00:00Z");
+        Instant newerAt = loadedAt.plusSeconds(1);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(1L), List.of(0L, 0L));
+        localTier.putAll(Map.of("AAPL", new StockCacheService.CachedStock(Price.parse("196.00"), newerAt)));
+        Map<String, StockCacheService.CachedStock> entries = new LinkedHashMap<>();
+        entries.put("AAPL", new StockCacheService.CachedStock(Price.parse("195.50"), loadedAt));
+        entries.put("MSFT", new StockCacheService.CachedStock(Price.parse("400.00"), loadedAt));
+
+        // When
+        int written = localTier.preload(entries);
+
+        // Then - las dos salen de la L1 sin tocar Redis
+        assertThat(written).isZero();
+        assertThat(localTier.getEntries(List.of("AAPL", "MSFT"))).containsOnly(
+                Map.entry("AAPL", new StockCacheService.CachedStock(Price.parse("196.00"), newerAt)),
+                Map.entry("MSFT", new StockCacheService.CachedStock(Price.parse("400.00"), loadedAt)));
+        assertThat(count("local", "hit")).isEqualTo(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void putAllAndInvalidate_publishesInvalidationsInTheSamePipeline() {
+        // Given - cada entrada deja dos resultados: el del script y el del PUBLISH
+        StockCacheService localTier = localTierService();
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenReturn(List.of(0L, 1L, 1L, 1L));
+        Instant now = Instant.now();
+        Map<String, StockCacheService.CachedStock> entries = new LinkedHashMap<>();
+        entries.put("AAPL", new StockCacheService.CachedStock(Price.parse("195.50"), now));
+        entries.put("msft", new StockCacheService.CachedStock(Price.parse("400.00"), now));
+
+        // When
+        List<String> written = localTier.putAllAndInvalidate(entries);
+
+        // Then
+        assertThat(written).containsExactly("MSFT");
+        assertThat(localTier.getEntries(List.of("MSFT"))).containsKey("MSFT");
+        verify(redisTemplate, times(0)).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void putAllAndInvalidate_bumpsCollectionVersionAtTheEndOfThePipeline() {
+        // Given
+        StringRedisConnection connection = mock(StringRedisConnection.class);
+        when(redisTemplate.executePipelined(any(RedisCallback.class))).thenAnswer(inv -> {
+            inv.<RedisCallback<Object>>getArgument(0).doInRedis(connection);
+            return List.of(1L, 7L);
+        });
+
+        // When
+        cacheService.putAllAndInvalidate(Map.of("AAPL",
+                new StockCacheService.CachedStock(Price.parse("195.50"), Instant.now())));
+
+        // Then
+        InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).evalSha(eq(StockCacheService.PUT_IF_NEWER.getSha1()),
+                eq(ReturnType.INTEGER), eq(1), any(String[].class));
+        inOrder.verify(connection).evalSha(eq(StockCacheService.BUMP_VERSION.getSha1()),
+                eq(ReturnType.INTEGER), eq(1), any(String[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void putAll_loadsScriptsAndRetries_whenRedisAnswersNoScript() {
+        // Given - Redis reiniciado: su caché de scripts está vacía
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisPipelineException(new InvalidDataAccessApiUsageException(
+                        "NOSCRIPT No matching script. Please use EVAL.")))
+                .thenReturn(List.of(1L));
+        StringRedisConnection connection = mock(StringRedisConnection.class, RETURNS_DEEP_STUBS);
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(inv -> inv.<RedisCallback<Object>>getArgument(0).doInRedis(connection));
+
+        // When
+        int written = cacheService.putAll(Map.of("AAPL",
+                new StockCacheService.CachedStock(Price.parse("195.50"), Instant.now())));
+
+        // Then
+        assertThat(written).isEqualTo(1);
+        verify(connection.scriptingCommands()).scriptLoad(
+                StockCacheService.PUT_IF_NEWER.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+        verify(connection.scriptingCommands()).scriptLoad(
+                StockCacheService.BUMP_VERSION.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+        verify(redisTemplate, times(2)).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void collectionVersion_isEmpty_untilSomethingIsIngested() {
+        // Given
+        when(valueOperations.get(StockCacheService.VERSION_KEY)).thenReturn(null, "1735732800000001");
+
+        // When / Then
+        assertThat(cacheService.collectionVersion()).isEmpty();
+        assertThat(cacheService.collectionVersion()).hasValue(1735732800000001L);
+    }
+
+    @Test
+    void collectionVersion_isEmpty_whenRedisIsDown() {
+        // Given
+        when(valueOperations.get(StockCacheService.VERSION_KEY))
+                .thenThrow(new RedisConnectionFailureException("Redis caído"));
+
+        // When / Then
+        assertThat(cacheService.collectionVersion()).isEmpty();
+    }
+
+    @Test
+    void ttl_addsIndependentJitterToEachWrite() {
+        // Given
+        StockCacheService jittered = new StockCacheService(redisTemplate, new SimpleMeterRegistry(), false, 0,
+                Duration.ZERO, Duration.ofMinutes(10), Duration.ofMinutes(1), 0);
+
+        // When
+        List<Long> ttls = IntStream.range(0, 200).mapToObj(i -> Long.parseLong(jittered.ttl())).toList();
+
+        // Then - entre 10 y 11 minutos, y no todas iguales
+        assertThat(ttls).allMatch(ttl -> ttl >= 600_000 && ttl <= 660_000);
+        assertThat(ttls.stream().distinct().count()).isGreaterThan(1);
+    }
+
+    private StockCacheService localTierService() {
+        meterRegistry = new SimpleMeterRegistry();
+        return new StockCacheService(redisTemplate, meterRegistry, true, 100, Duration.ofMinutes(1));
+    }
+
+    private double count(String tier, String result) {
+        return meterRegistry.counter("stocks.cache.requests", "tier", tier, "result", result).count();
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(StockCacheService.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
     }
 }
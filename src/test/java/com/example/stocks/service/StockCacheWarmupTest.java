@@ -0,0 +1,92 @@
+package com.example.stocks.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.StockSummary;
+
+@ExtendWith(MockitoExtension.class)
+class StockCacheWarmupTest {
+
+    @Mock
+    private StockService stockService;
+
+    @Mock
+    private StockCacheService cacheService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void run_loadsEveryStockInChunks() {
+        // Given
+        Instant at = Instant.parse("2025-01-01T12:00:00Z");
+        doAnswer(inv -> {
+            Consumer<StockSummary> action = inv.getArgument(0);
+            for (String symbol : List.of("AAPL", "MSFT", "NVDA", "TSLA", "AMZN")) {
+                action.accept(new StockSummary(symbol, Price.parse("100.00"), at));
+            }
+            return null;
+        }).when(stockService).forEachStock(any());
+        when(cacheService.preload(anyMap())).thenAnswer(inv -> ((Map<?, ?>) inv.getArgument(0)).size());
+        StockCacheWarmup warmup = new StockCacheWarmup(stockService, cacheService, 2);
+
+        // When
+        warmup.run(new DefaultApplicationArguments());
+
+        // Then - 5 símbolos en chunks de 2: tres pipelines
+        ArgumentCaptor<Map<String, StockCacheService.CachedStock>> chunks = ArgumentCaptor.forClass(Map.class);
+        verify(cacheService, times(3)).preload(chunks.capture());
+        assertThat(chunks.getAllValues()).extracting(Map::size).containsExactly(2, 2, 1);
+        assertThat(chunks.getAllValues().get(2))
+                .containsEntry("AMZN", new StockCacheService.CachedStock(Price.parse("100.00"), at));
+    }
+
+    @Test
+    void run_skipsStocksWithoutTimestamp() {
+        // Given - sin updatedAt no se podría resolver el last-write-wins contra SQS
+        doAnswer(inv -> {
+            Consumer<StockSummary> action = inv.getArgument(0);
+            action.accept(new StockSummary("AAPL", Price.parse("100.00"), null));
+            return null;
+        }).when(stockService).forEachStock(any());
+        StockCacheWarmup warmup = new StockCacheWarmup(stockService, cacheService, 2);
+
+        // When
+        warmup.run(new DefaultApplicationArguments());
+
+        // Then
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void run_startsWithColdCache_whenLoadFails() {
+        // Given
+        doThrow(new DataAccessResourceFailureException("db down")).when(stockService).forEachStock(any());
+        StockCacheWarmup warmup = new StockCacheWarmup(stockService, cacheService, 2);
+
+        // When / Then
+        assertThatCode(() -> warmup.run(new DefaultApplicationArguments())).doesNotThrowAnyException();
+        verifyNoInteractions(cacheService);
+    }
+}
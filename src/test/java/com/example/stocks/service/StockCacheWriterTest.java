@@ -0,0 +1,164 @@
+package com.example.stocks.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.StockTick;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class StockCacheWriterTest {
+
+    @Mock
+    private StockCacheService cacheService;
+
+    @Mock
+    private StockPriceStream priceStream;
+
+    @Mock
+    private Clock clock;
+
+    private SimpleMeterRegistry meterRegistry;
+    private StockCacheWriter writer;
+    private Instant time = Instant.parse("2025-01-01T12:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(clock.instant()).thenAnswer(inv -> time);
+        // Intervalo muy largo: en los tests la cola solo se vacía al llamar a flush()
+        writer = new StockCacheWriter(cacheService, priceStream, new IngestMetrics(meterRegistry), meterRegistry,
+                true, 500, Duration.ofHours(1), Duration.ofHours(4), clock);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writer.close();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void writeAfterCommit_queuesNothingUntilTheTransactionCommits() {
+        // Given
+        Instant now = Instant.now();
+        TransactionSynchronizationManager.initSynchronization();
+        writer.writeAfterCommit(List.of(new Stock("AAPL", Price.parse("195.00"), now)));
+
+        // When - todavía dentro de la transacción
+        writer.flush();
+
+        // Then
+        verifyNoInteractions(cacheService);
+
+        // When - commit
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        writer.flush();
+
+        // Then
+        verify(cacheService).putAllAndInvalidate(Map.of(
+                "AAPL", new StockCacheService.CachedStock(Price.parse("195.00"), now)));
+    }
+
+    @Test
+    void writeAfterCommit_dropsWrites_whenTheTransactionRollsBack() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        writer.writeAfterCommit(List.of(new Stock("AAPL", Price.parse("195.00"), Instant.now())));
+
+        // When
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        writer.flush();
+
+        // Then
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void flush_keepsOnlyLatestPricePerSymbolAndWritesOnePipeline() {
+        // Given
+        Instant t0 = Instant.parse("2025-01-01T12:00:00Z");
+        Instant t1 = t0.plusSeconds(1);
+        writer.writeAfterCommit(List.of(new Stock("AAPL", Price.parse("196.00"), t1)));
+        writer.writeAfterCommit(List.of(
+                new Stock("AAPL", Price.parse("195.00"), t0),
+                new Stock("MSFT", Price.parse("400.00"), t0)));
+        when(cacheService.putAllAndInvalidate(anyMap())).thenReturn(List.of("AAPL"));
+
+        // When
+        writer.flush();
+
+        // Then - MSFT no avanzó la caché: ni se difunde ni cuenta como visible
+        verify(cacheService, times(1)).putAllAndInvalidate(Map.of(
+                "AAPL", new StockCacheService.CachedStock(Price.parse("196.00"), t1),
+                "MSFT", new StockCacheService.CachedStock(Price.parse("400.00"), t0)));
+        verify(priceStream).publishAll(List.of(new StockTick("AAPL", Price.parse("196.00"), t1)));
+        assertThat(meterRegistry.get(IngestMetrics.STALE).tag("stage", "cache").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void flush_requeuesBatch_whenRedisFails() {
+        // Given
+        Instant now = Instant.now();
+        writer.writeAfterCommit(List.of(new Stock("AAPL", Price.parse("195.00"), now)));
+        when(cacheService.putAllAndInvalidate(anyMap()))
+                .thenThrow(new IllegalStateException("redis down"))
+                .thenReturn(List.of("AAPL"));
+
+        // When
+        writer.flush();
+        time = time.plus(Duration.ofHours(1));
+        writer.flush();
+
+        // Then
+        verify(cacheService, times(2)).putAllAndInvalidate(Map.of(
+                "AAPL", new StockCacheService.CachedStock(Price.parse("195.00"), now)));
+        assertThat(meterRegistry.get("stocks.cache.write-behind.pending").gauge().value()).isZero();
+        assertThat(meterRegistry.get("stocks.cache.write-behind.failures").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void flush_backsOffExponentially_whileRedisKeepsFailing() {
+        // Given
+        writer.writeAfterCommit(List.of(new Stock("AAPL", Price.parse("195.00"), Instant.now())));
+        when(cacheService.putAllAndInvalidate(anyMap())).thenThrow(new IllegalStateException("redis down"));
+
+        // When - fallos a las 0h y 1h; el siguiente intento espera 2h
+        writer.flush();
+        time = time.plus(Duration.ofHours(1));
+        writer.flush();
+        writer.flush();
+        time = time.plus(Duration.ofMinutes(119));
+        writer.flush();
+
+        // Then
+        verify(cacheService, times(2)).putAllAndInvalidate(anyMap());
+        assertThat(meterRegistry.get("stocks.cache.write-behind.failures").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("stocks.cache.write-behind.pending").gauge().value()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.stocks.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.domain.StockTick;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class StockPriceStreamTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-01T12:00:00.123456Z");
+
+    @Mock
+    private StringRedisTemplate redis;
+
+    private StockPriceStream stream;
+
+    @BeforeEach
+    void setUp() {
+        stream = new StockPriceStream(redis, new SimpleMeterRegistry(), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.shutdown();
+    }
+
+    private void receive(StockTick tick) {
+        stream.onMessage(new DefaultMessage(StockPriceStream.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                StockPriceStream.encode(tick).getBytes(StandardCharsets.UTF_8)), null);
+    }
+
+    private static StockTick tick(String symbol, String price) {
+        return new StockTick(symbol, Price.parse(price), NOW);
+    }
+
+    @Test
+    void onMessage_deliversOnlySubscribedSymbols() throws Exception {
+        // Given
+        List<StockTick> received = new CopyOnWriteArrayList<>();
+        CountDownLatch delivered = new CountDownLatch(1);
+        stream.subscribe(List.of("aapl"), t -> {
+            received.add(t);
+            delivered.countDown();
+        });
+
+        // When
+        receive(tick("MSFT", "400"));
+        receive(tick("AAPL", "195.12"));
+
+        // Then
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly(tick("AAPL", "195.12"));
+    }
+
+    @Test
+    void onMessage_conflatesToLatestPrice_whenSubscriberIsSlow() throws Exception {
+        // Given
+        List<StockTick> received = new CopyOnWriteArrayList<>();
+        CountDownLatch firstSend = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        stream.subscribe(List.of("AAPL"), t -> {
+            firstSend.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(t);
+            done.countDown();
+        });
+
+        // When - el primer envío queda bloqueado mientras llegan dos precios más
+        receive(tick("AAPL", "1"));
+        assertThat(firstSend.await(5, TimeUnit.SECONDS)).isTrue();
+        receive(tick("AAPL", "2"));
+        receive(tick("AAPL", "3"));
+        release.countDown();
+
+        // Then
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly(tick("AAPL", "1"), tick("AAPL", "3"));
+    }
+
+    @Test
+    void subscription_closesOnSendFailure_andFreesItsSlot() throws Exception {
+        // Given
+        CountDownLatch failed = new CountDownLatch(1);
+        stream.subscribe(List.of("AAPL"), t -> {
+            failed.countDown();
+            throw new IOException("Broken pipe");
+        });
+        stream.subscribe(List.of("MSFT"), t -> { });
+
+        // When
+        receive(tick("AAPL", "1"));
+
+        // Then
+        assertThat(failed.await(5, TimeUnit.SECONDS)).isTrue();
+        StockPriceStream.Subscription third = null;
+        for (int i = 0; i < 50 && third == null; i++) {
+            third = stream.subscribe(List.of("NVDA"), t -> { });
+            if (third == null) Thread.sleep(20);
+        }
+        assertThat(third).isNotNull();
+    }
+
+    @Test
+    void subscribe_rejects_whenMaxSubscribersReached() {
+        // Given
+        stream.subscribe(List.of("AAPL"), t -> { });
+        StockPriceStream.Subscription second = stream.subscribe(List.of("AAPL"), t -> { });
+
+        // Then
+        assertThat(stream.subscribe(List.of("AAPL"), t -> { })).isNull();
+        second.close();
+        assertThat(stream.subscribe(List.of("AAPL"), t -> { })).isNotNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void publishAll_usesOnePipeline_andSkipsEmptyBatch() {
+        // When
+        stream.publishAll(List.of());
+        verify(redis, never()).executePipelined(any(RedisCallback.class));
+        stream.publishAll(List.of(tick("AAPL", "1"), tick("MSFT", "2")));
+
+        // Then
+        verify(redis).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void encode_keepsMicrosecondsAndPlainPrice() {
+        assertThat(StockPriceStream.encode(tick("AAPL", "195.50"))).isEqualTo("AAPL:1735732800123456:195.5");
+    }
+}
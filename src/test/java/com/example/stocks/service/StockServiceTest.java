@@ -1,23 +1,46 @@
 package com.example.stocks.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
-import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 
+import org.awaitility.Awaitility;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
+import com.example.stocks.domain.Price;
 import com.example.stocks.domain.Stock;
+import com.example.stocks.domain.StockSummary;
+import com.example.stocks.domain.StockTick;
 import com.example.stocks.repository.StockRepository;
+import com.example.stocks.repository.StockTickRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 @ExtendWith(MockitoExtension.class)
 class StockServiceTest {
@@ -25,41 +48,72 @@ class StockServiceTest {
     @Mock
     private StockRepository repository;
 
+    @Mock
+    private StockTickRepository tickRepository;
+
     @Mock
     private StockCacheService cacheService;
 
+    @Mock
+    private StockPriceStream priceStream;
+
     private StockService stockService;
 
     @BeforeEach
     void setUp() {
-        stockService = new StockService(repository, cacheService);
+        // Sin cola write-behind: la caché se escribe en el mismo hilo, ya que no hay transacción
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IngestMetrics metrics = new IngestMetrics(meterRegistry);
+        StockCacheWriter cacheWriter = new StockCacheWriter(cacheService, priceStream, metrics, meterRegistry,
+                false, 0, Duration.ZERO, Duration.ZERO, Clock.systemUTC());
+        stockService = new StockService(repository, tickRepository, cacheService, cacheWriter, metrics);
     }
 
     @Test
-    void findAll_returnsAllStocks() {
+    void findPage_usesKeysetQueryAfterNormalizedCursor() {
         // Given
-        List<Stock> expected = List.of(
-                new Stock("AAPL", new BigDecimal("195.00"), Instant.now()),
-                new Stock("MSFT", new BigDecimal("400.00"), Instant.now()));
-        when(repository.findAll()).thenReturn(expected);
+        List<StockSummary> page = List.of(new StockSummary("NVDA", Price.parse("450.00"), Instant.now()));
+        when(repository.findSummariesBySymbolGreaterThanOrderBySymbolAsc("MSFT", Limit.of(50))).thenReturn(page);
 
         // When
-        List<Stock> result = stockService.findAll();
+        List<StockSummary> result = stockService.findPage("msft", 50);
 
         // Then
-        assertThat(result).hasSize(2);
-        verify(repository).findAll();
+        assertThat(result).isEqualTo(page);
+    }
+
+    @Test
+    void findPage_startsFromBeginning_whenNoCursor() {
+        // When
+        stockService.findPage(null, 100);
+
+        // Then
+        verify(repository).findSummariesBySymbolGreaterThanOrderBySymbolAsc("", Limit.of(100));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void forEachStock_streamsThroughRepositoryCursor() {
+        // Given
+        Consumer<StockSummary> action = mock(Consumer.class);
+
+        // When
+        stockService.forEachStock(action);
+
+        // Then
+        verify(repository).forEachOrderedBySymbol(StockService.STREAM_FETCH_SIZE, action);
+        verify(repository, never()).findAll();
     }
 
     @Test
     void getView_whenCached_returnsViewWithCachedPrice() {
         // Given
         String symbol = "AAPL";
-        BigDecimal cachedPrice = new BigDecimal("200.00");
-        Stock stock = new Stock(symbol, new BigDecimal("195.00"), Instant.now());
+        Price cachedPrice = Price.parse("200.00");
+        Instant cachedAt = Instant.parse("2025-01-01T12:00:00Z");
 
-        when(cacheService.get(symbol.toUpperCase())).thenReturn(Optional.of(cachedPrice));
-        when(repository.findBySymbol(symbol.toUpperCase())).thenReturn(Optional.of(stock));
+        when(cacheService.getEntry(symbol.toUpperCase()))
+                .thenReturn(Optional.of(new StockCacheService.CachedStock(cachedPrice, cachedAt)));
 
         // When
         Optional<StockService.StockView> result = stockService.getView(symbol);
@@ -68,17 +122,50 @@ class StockServiceTest {
         assertThat(result).isPresent();
         assertThat(result.get().fromCache()).isTrue();
         assertThat(result.get().price()).isEqualByComparingTo(cachedPrice);
+        assertThat(result.get().updatedAt()).isEqualTo(cachedAt);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void getView_readHeavyLoadOnCachedSymbol_issuesNoDatabaseQueries() {
+        // Given
+        when(cacheService.getEntry("AAPL")).thenReturn(Optional.of(
+                new StockCacheService.CachedStock(Price.parse("195.00"), Instant.now())));
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            stockService.getView("AAPL");
+        }
+
+        // Then - antes eran 10.000 SELECT; ahora ninguno
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void getView_whenCachedValueHasNoTimestamp_readsFromDatabase() {
+        // Given
+        StockSummary stock = new StockSummary("AAPL", Price.parse("195.00"), Instant.now());
+        when(cacheService.getEntry("AAPL"))
+                .thenReturn(Optional.of(new StockCacheService.CachedStock(Price.parse("195.00"), null)));
+        when(repository.findSummaryBySymbol("AAPL")).thenReturn(Optional.of(stock));
+
+        // When
+        Optional<StockService.StockView> result = stockService.getView("AAPL");
+
+        // Then
+        assertThat(result).isPresent();
+        assertThat(result.get().fromCache()).isFalse();
     }
 
     @Test
     void getView_whenNotCached_returnsViewFromDatabase() {
         // Given
         String symbol = "MSFT";
-        BigDecimal dbPrice = new BigDecimal("400.00");
-        Stock stock = new Stock(symbol, dbPrice, Instant.now());
+        Price dbPrice = Price.parse("400.00");
+        StockSummary stock = new StockSummary(symbol, dbPrice, Instant.now());
 
-        when(cacheService.get(symbol.toUpperCase())).thenReturn(Optional.empty());
-        when(repository.findBySymbol(symbol.toUpperCase())).thenReturn(Optional.of(stock));
+        when(cacheService.getEntry(symbol.toUpperCase())).thenReturn(Optional.empty());
+        when(repository.findSummaryBySymbol(symbol.toUpperCase())).thenReturn(Optional.of(stock));
 
         // When
         Optional<StockService.StockView> result = stockService.getView(symbol);
@@ -89,13 +176,76 @@ class StockServiceTest {
         assertThat(result.get().price()).isEqualByComparingTo(dbPrice);
     }
 
+    @Test
+    void getView_whenNotCached_backfillsCacheWithDatabaseRow() {
+        // Given
+        Instant updatedAt = Instant.parse("2025-01-01T12:00:00Z");
+        when(cacheService.getEntry("MSFT")).thenReturn(Optional.empty());
+        when(repository.findSummaryBySymbol("MSFT"))
+                .thenReturn(Optional.of(new StockSummary("MSFT", Price.parse("400.00"), updatedAt)));
+
+        // When
+        stockService.getView("msft");
+
+        // Then
+        verify(cacheService).putAll(Map.of("MSFT", new StockCacheService.CachedStock(Price.parse("400.00"), updatedAt)));
+    }
+
+    @Test
+    void getView_concurrentMisses_shareOneDatabaseQuery() throws Exception {
+        // Given - la primera consulta se queda bloqueada hasta que el resto de peticiones esperan
+        StockSummary stock = new StockSummary("AAPL", Price.parse("195.00"), Instant.now());
+        CountDownLatch release = new CountDownLatch(1);
+        when(cacheService.getEntry("AAPL")).thenReturn(Optional.empty());
+        when(repository.findSummaryBySymbol("AAPL")).thenAnswer(inv -> {
+            release.await();
+            return Optional.of(stock);
+        });
+
+        // When
+        List<Thread> callers = new ArrayList<>();
+        Map<Thread, Optional<StockService.StockView>> results = new ConcurrentHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(Thread.ofVirtual().start(
+                    () -> results.put(Thread.currentThread(), stockService.getView("AAPL"))));
+        }
+        Awaitility.await().atMost(Duration.ofSeconds(5))
+                .until(() -> callers.stream().allMatch(t -> t.getState() == Thread.State.WAITING));
+        release.countDown();
+        for (Thread caller : callers) {
+            caller.join();
+        }
+
+        // Then
+        verify(repository, times(1)).findSummaryBySymbol("AAPL");
+        assertThat(results.values()).hasSize(8).allMatch(view -> view.isPresent() && !view.get().fromCache());
+    }
+
+    @Test
+    void getView_whenLoadFails_nextCallQueriesAgain() {
+        // Given
+        when(cacheService.getEntry("AAPL")).thenReturn(Optional.empty());
+        when(repository.findSummaryBySymbol("AAPL"))
+                .thenThrow(new IllegalStateException("db down"))
+                .thenReturn(Optional.empty());
+
+        // When
+        assertThatThrownBy(() -> stockService.getView("AAPL"))
+                .isInstanceOf(IllegalStateException.class);
+        Optional<StockService.StockView> retry = stockService.getView("AAPL");
+
+        // Then
+        assertThat(retry).isEmpty();
+        verify(repository, times(2)).findSummaryBySymbol("AAPL");
+    }
+
     @Test
     void getView_whenNotFound_returnsEmpty() {
         // Given
         String symbol = "UNKNOWN";
 
-        when(cacheService.get(symbol.toUpperCase())).thenReturn(Optional.empty());
-        when(repository.findBySymbol(symbol.toUpperCase())).thenReturn(Optional.empty());
+        when(cacheService.getEntry(symbol.toUpperCase())).thenReturn(Optional.empty());
+        when(repository.findSummaryBySymbol(symbol.toUpperCase())).thenReturn(Optional.empty());
 
         // When
         Optional<StockService.StockView> result = stockService.getView(symbol);
@@ -105,43 +255,141 @@ class StockServiceTest {
     }
 
     @Test
-    void upsertFromMessage_createsNewStock_whenNotExists() {
+    void upsertFromMessage_upsertsSingleStockAndCachesIt() {
         // Given
-        String symbol = "NVDA";
-        BigDecimal price = new BigDecimal("450.00");
+        String symbol = "nvda";
+        Price price = Price.parse("450.00");
         Instant now = Instant.now();
-
-        when(repository.findBySymbol(symbol.toUpperCase())).thenReturn(Optional.empty());
-        when(repository.save(any(Stock.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(repository.upsertAll(any())).thenAnswer(inv -> List.copyOf(inv.<Collection<Stock>>getArgument(0)));
 
         // When
         Stock result = stockService.upsertFromMessage(symbol, price, now);
 
         // Then
-        assertThat(result.getSymbol()).isEqualTo(symbol.toUpperCase());
-        assertThat(result.getPrice()).isEqualByComparingTo(price);
-        verify(repository).save(any(Stock.class));
-        verify(cacheService).put(symbol.toUpperCase(), price);
+        assertThat(result.getSymbol()).isEqualTo("NVDA");
+        assertThat(result.getFixedPrice()).isEqualTo(price);
+        assertThat(result.getUpdatedAt()).isEqualTo(now);
+        verify(repository, never()).findBySymbol(any());
+        verify(repository, never()).save(any());
+        verify(cacheService).putAllAndInvalidate(Map.of("NVDA", new StockCacheService.CachedStock(price, now)));
     }
 
     @Test
-    void upsertFromMessage_updatesExistingStock() {
+    void upsertAll_sendsNormalizedBatchToRepositoryAndCachesWrittenRows() {
         // Given
-        String symbol = "AAPL";
-        BigDecimal oldPrice = new BigDecimal("195.00");
-        BigDecimal newPrice = new BigDecimal("200.00");
         Instant now = Instant.now();
-        Stock existing = new Stock(symbol, oldPrice, Instant.now());
+        List<Stock> updates = List.of(
+                new Stock("aapl", Price.parse("195.00"), now),
+                new Stock("MSFT", Price.parse("400.00"), now));
+        when(repository.upsertAll(any())).thenAnswer(inv -> List.copyOf(inv.<Collection<Stock>>getArgument(0)));
 
-        when(repository.findBySymbol(symbol.toUpperCase())).thenReturn(Optional.of(existing));
-        when(repository.save(any(Stock.class))).thenAnswer(inv -> inv.getArgument(0));
+        // When
+        List<Stock> result = stockService.upsertAll(updates);
+
+        // Then
+        assertThat(result).extracting(Stock::getSymbol).containsExactly("AAPL", "MSFT");
+        verify(repository).upsertAll(any());
+        verify(cacheService).putAllAndInvalidate(Map.of(
+                "AAPL", new StockCacheService.CachedStock(Price.parse("195.00"), now),
+                "MSFT", new StockCacheService.CachedStock(Price.parse("400.00"), now)));
+    }
+
+    @Test
+    void upsertAll_publishesOnlyPricesThatAdvancedTheCache() {
+        // Given
+        Instant now = Instant.now();
+        List<Stock> updates = List.of(
+                new Stock("AAPL", Price.parse("195.00"), now),
+                new Stock("MSFT", Price.parse("400.00"), now));
+        when(repository.upsertAll(any())).thenAnswer(inv -> List.copyOf(inv.<Collection<Stock>>getArgument(0)));
+        when(cacheService.putAllAndInvalidate(anyMap())).thenReturn(List.of("AAPL"));
 
         // When
-        Stock result = stockService.upsertFromMessage(symbol, newPrice, now);
+        stockService.upsertAll(updates);
 
         // Then
-        assertThat(result.getPrice()).isEqualByComparingTo(newPrice);
-        assertThat(result.getUpdatedAt()).isEqualTo(now);
-        verify(cacheService).put(symbol.toUpperCase(), newPrice);
+        verify(priceStream).publishAll(List.of(new StockTick("AAPL", Price.parse("195.00"), now)));
+    }
+
+    @Test
+    void upsertAll_doesNotCacheRowsTheRepositoryDidNotWrite() {
+        // Given
+        Instant now = Instant.now();
+        when(repository.upsertAll(any())).thenReturn(List.of());
+
+        // When
+        List<Stock> result = stockService.upsertAll(List.of(new Stock("AAPL", Price.parse("1"), now)));
+
+        // Then
+        assertThat(result).isEmpty();
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void upsertAll_appendsEveryUpdateToHistory_evenStaleOnes() {
+        // Given
+        Instant now = Instant.now();
+        when(repository.upsertAll(any())).thenReturn(List.of());
+
+        // When
+        stockService.upsertAll(List.of(new Stock("aapl", Price.parse("1"), now)));
+
+        // Then
+        ArgumentCaptor<Collection<Stock>> ticks = ArgumentCaptor.forClass(Collection.class);
+        verify(tickRepository).appendAll(ticks.capture());
+        assertThat(ticks.getValue()).singleElement().satisfies(st -> {
+            assertThat(st.getSymbol()).isEqualTo("AAPL");
+            assertThat(st.getUpdatedAt()).isEqualTo(now);
+        });
+    }
+
+    @Test
+    void getHistory_queriesTickRangeForNormalizedSymbol() {
+        // Given
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+        List<StockTick> ticks = List.of(new StockTick("AAPL", Price.parse("195.12"), from.plusSeconds(1)));
+        when(tickRepository.findBySymbolBetween("AAPL", from, to, 100)).thenReturn(ticks);
+
+        // When
+        List<StockTick> result = stockService.getHistory("aapl", from, to, 100);
+
+        // Then
+        assertThat(result).isEqualTo(ticks);
+    }
+
+    @Test
+    void getViews_resolvesCacheHitsAndMissesWithOneQueryAndBackfillsCache() {
+        // Given
+        Instant now = Instant.now();
+        when(cacheService.getEntries(Set.of("AAPL", "MSFT", "NOPE"))).thenReturn(Map.of(
+                "AAPL", new StockCacheService.CachedStock(Price.parse("195.00"), now)));
+        when(repository.findSummariesBySymbolIn(List.of("MSFT", "NOPE")))
+                .thenReturn(List.of(new StockSummary("MSFT", Price.parse("400.00"), now)));
+
+        // When
+        List<StockService.StockView> result = stockService.getViews(List.of("msft", "aapl", "nope", "AAPL"));
+
+        // Then - orden de la petición, sin duplicados ni símbolos inexistentes
+        assertThat(result).extracting(StockService.StockView::symbol).containsExactly("MSFT", "AAPL");
+        assertThat(result).extracting(StockService.StockView::fromCache).containsExactly(false, true);
+        verify(cacheService).putAll(Map.of("MSFT", new StockCacheService.CachedStock(Price.parse("400.00"), now)));
+        verify(repository, never()).findSummaryBySymbol(any());
+    }
+
+    @Test
+    void getViews_allCached_issuesNoDatabaseQueries() {
+        // Given
+        when(cacheService.getEntries(Set.of("AAPL"))).thenReturn(Map.of(
+                "AAPL", new StockCacheService.CachedStock(Price.parse("195.00"), Instant.now())));
+
+        // When
+        List<StockService.StockView> result = stockService.getViews(List.of("AAPL"));
+
+        // Then
+        assertThat(result).singleElement().satisfies(v -> assertThat(v.fromCache()).isTrue());
+        verifyNoInteractions(repository);
+        verify(cacheService, never()).putAll(anyMap());
     }
 }
@@ -0,0 +1,75 @@
+package com.example.stocks.service;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.stocks.repository.StockTickRepository;
+
+@ExtendWith(MockitoExtension.class)
+class StockTickRetentionServiceTest {
+
+    @Mock
+    private StockTickRepository repository;
+
+    private StockTickRetentionService service;
+
+    @BeforeEach
+    void setUp() {
+        Clock clock = Clock.fixed(Instant.parse("2025-01-10T08:00:00Z"), ZoneOffset.UTC);
+        service = new StockTickRetentionService(repository, Duration.ofDays(7), 2, clock);
+    }
+
+    @Test
+    void maintain_precreatesUpcomingPartitions() {
+        // When
+        service.maintain();
+
+        // Then
+        verify(repository).createPartition(LocalDate.of(2025, 1, 10));
+        verify(repository).createPartition(LocalDate.of(2025, 1, 11));
+        verify(repository).createPartition(LocalDate.of(2025, 1, 12));
+    }
+
+    @Test
+    void maintain_dropsOnlyPartitionsOlderThanRetention() {
+        // Given - la retención llega hasta el 2025-01-03 08:00, así que ese día se conserva
+        when(repository.findPartitionDays()).thenReturn(List.of(
+                LocalDate.of(2025, 1, 2), LocalDate.of(2025, 1, 3), LocalDate.of(2025, 1, 10)));
+
+        // When
+        service.maintain();
+
+        // Then
+        verify(repository).dropPartition(LocalDate.of(2025, 1, 2));
+        verify(repository, never()).dropPartition(LocalDate.of(2025, 1, 3));
+        verify(repository, never()).dropPartition(LocalDate.of(2025, 1, 10));
+        verify(repository).deleteFromDefaultPartitionBefore(Instant.parse("2025-01-03T00:00:00Z"));
+    }
+
+    @Test
+    void init_createsSchemaBeforePartitions() {
+        // When
+        service.init();
+
+        // Then
+        InOrder order = inOrder(repository);
+        order.verify(repository).createSchema();
+        order.verify(repository).createPartition(LocalDate.of(2025, 1, 10));
+    }
+}
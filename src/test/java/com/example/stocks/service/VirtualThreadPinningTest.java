@@ -0,0 +1,119 @@
+package com.example.stocks.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.stocks.domain.Price;
+import com.example.stocks.messaging.SqsStockListener;
+import com.example.stocks.messaging.StockUpdateMessage;
+import com.example.stocks.repository.CandleRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Comprobación rápida, con la base de datos y Redis simulados, de que el listener, las velas y la
+ * difusión SSE no fijan hilos virtuales: JFR no debe registrar ningún evento
+ * jdk.VirtualThreadPinned (un hilo virtual bloqueado dentro de synchronized). La prueba de carga
+ * sobre el camino real, con drivers incluidos, es containers/VirtualThreadPinningIT.
+ */
+@ExtendWith(MockitoExtension.class)
+class VirtualThreadPinningTest {
+
+    private static final int MESSAGES = 2_000;
+    private static final List<String> SYMBOLS = List.of("AAPL", "MSFT", "GOOG", "NVDA", "AMZN");
+
+    @Mock
+    private StockService stockService;
+
+    @Mock
+    private CandleRepository candleRepository;
+
+    @Mock
+    private StringRedisTemplate redis;
+
+    @Test
+    void ingestPath_doesNotPinVirtualThreads() throws Exception {
+        // Given - la "base de datos" y el cliente SSE bloquean unos milisegundos
+        doAnswer(inv -> {
+            Thread.sleep(1);
+            return null;
+        }).when(stockService).upsertFromMessage(any(), any(), any());
+        CandleService candles = new CandleService(candleRepository, new SimpleMeterRegistry(), 100, 100_000,
+                Duration.ofSeconds(2), Clock.systemUTC());
+        StockPriceStream stream = new StockPriceStream(redis, new SimpleMeterRegistry(), 100);
+        AtomicInteger delivered = new AtomicInteger();
+        for (int i = 0; i < 50; i++) {
+            stream.subscribe(SYMBOLS, tick -> {
+                sleep(1);
+                delivered.incrementAndGet();
+            });
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             RecordingStream recording = new RecordingStream()) {
+            AtomicInteger pinned = new AtomicInteger();
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent("jdk.VirtualThreadPinned", event -> pinned.incrementAndGet());
+            recording.startAsync();
+            SqsStockListener listener = new SqsStockListener(stockService, null, candles, executor,
+                    new IngestMetrics(new SimpleMeterRegistry()));
+
+            // When
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[MESSAGES];
+            for (int i = 0; i < MESSAGES; i++) {
+                String symbol = SYMBOLS.get(i % SYMBOLS.size());
+                Price price = Price.ofUnits(1_000_000L + i);
+                futures[i] = listener.onMessage(new StockUpdateMessage(symbol, price, Instant.now()));
+                if (i % 10 == 0) {
+                    String body = symbol + ":" + (System.currentTimeMillis() * 1000) + ":" + price;
+                    executor.execute(() -> stream.onMessage(new DefaultMessage(
+                            StockPriceStream.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                            body.getBytes(StandardCharsets.UTF_8)), null));
+                }
+            }
+            CompletableFuture.allOf(futures).join();
+
+            // Control: un bloqueo dentro de synchronized sí se detecta
+            Object monitor = new Object();
+            Thread.ofVirtual().start(() -> {
+                synchronized (monitor) {
+                    sleep(50);
+                }
+            }).join();
+            recording.stop();
+
+            // Then
+            assertThat(pinned.get()).isEqualTo(1);
+            assertThat(delivered.get()).isPositive();
+        } finally {
+            stream.shutdown();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}